@@ -0,0 +1,48 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+
+/**
+ * Lightweight stand-ins for Velocity's player and server types. Mocks would dominate the measurements, so these are
+ * plain proxies that only answer what the queue code asks for.
+ */
+final class BenchmarkFixtures {
+    private BenchmarkFixtures() {
+    }
+
+    static Player player(UUID playerId) {
+        String username = "player-" + playerId.toString().substring(0, 8);
+
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUniqueId" -> playerId;
+                    case "getUsername" -> username;
+                    case "isActive" -> true;
+                    case "hasPermission" -> false;
+                    case "hashCode" -> playerId.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> username;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static RegisteredServer server(String name) {
+        ServerInfo serverInfo = new ServerInfo(name, InetSocketAddress.createUnresolved("localhost", 25565));
+
+        return (RegisteredServer) Proxy.newProxyInstance(RegisteredServer.class.getClassLoader(),
+                new Class<?>[]{RegisteredServer.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getServerInfo" -> serverInfo;
+                    case "hashCode" -> name.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> name;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
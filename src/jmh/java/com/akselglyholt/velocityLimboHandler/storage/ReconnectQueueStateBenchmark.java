@@ -0,0 +1,132 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queue operations the reconnect and notifier tasks lean on, at different queue sizes.
+ * <p>
+ * Every benchmark leaves the queue the same size it found it: players taken off the head are enqueued again at the
+ * tail, and stale entries dropped by a drain or prune are handed back by the stale entry remover. That keeps the
+ * queue size and the share of stale entries steady across invocations without per-invocation setup.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec}, optionally narrowed down with
+ * {@code -Djmh.include=<regex>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReconnectQueueStateBenchmark {
+    // One in every STALE_EVERY players has gone offline without being removed yet
+    private static final int STALE_EVERY = 10;
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int queuedPlayers;
+
+    private final Map<UUID, Player> players = new HashMap<>();
+    private final Set<UUID> stalePlayers = new HashSet<>();
+    private final Deque<UUID> enqueueOrder = new ArrayDeque<>();
+
+    private RegisteredServer server;
+    private String serverName;
+    private ReconnectQueueState state;
+    private UUID middlePlayer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = BenchmarkFixtures.server("survival");
+        serverName = server.getServerInfo().getName();
+        state = new ReconnectQueueState(this::requeueStaleEntry, this::resolveActivePlayer);
+
+        for (int i = 0; i < queuedPlayers; i++) {
+            UUID playerId = new UUID(0L, i);
+            players.put(playerId, BenchmarkFixtures.player(playerId));
+            if (i % STALE_EVERY == STALE_EVERY - 1) {
+                stalePlayers.add(playerId);
+            }
+
+            state.enqueue(players.get(playerId), server);
+            enqueueOrder.addLast(playerId);
+        }
+
+        middlePlayer = new UUID(0L, queuedPlayers / 2);
+    }
+
+    /**
+     * A player leaves the queue and another joins at the tail.
+     */
+    @Benchmark
+    public int enqueueRemoveChurn() {
+        UUID leaving = enqueueOrder.pollFirst();
+        state.removePlayer(leaving);
+        state.enqueue(players.get(leaving), server);
+        enqueueOrder.addLast(leaving);
+        return state.getQueuedPlayerCount();
+    }
+
+    /**
+     * Position lookups right after the queue changed, as the notifier sees them while players come and go.
+     */
+    @Benchmark
+    public int getQueuePositionAfterChurn() {
+        UUID leaving = enqueueOrder.pollFirst();
+        state.removePlayer(leaving);
+        state.enqueue(players.get(leaving), server);
+        enqueueOrder.addLast(leaving);
+        return state.getQueuePosition(middlePlayer, serverName);
+    }
+
+    @Benchmark
+    public int getQueuePosition() {
+        return state.getQueuePosition(middlePlayer, serverName);
+    }
+
+    /**
+     * Takes the next active player off the head, skipping over stale entries, and puts them back at the tail.
+     */
+    @Benchmark
+    public Player getNextActivePlayerWithStaleEntries() {
+        Player next = state.getNextQueuedPlayer(server);
+        state.removePlayer(next.getUniqueId());
+        state.enqueue(next, server);
+        return next;
+    }
+
+    @Benchmark
+    public int pruneInactivePlayers() {
+        state.pruneInactivePlayers();
+        return state.getQueuedPlayerCount();
+    }
+
+    private Player resolveActivePlayer(UUID playerId) {
+        return stalePlayers.contains(playerId) ? null : players.get(playerId);
+    }
+
+    private void requeueStaleEntry(UUID playerId) {
+        state.enqueue(players.get(playerId), server);
+    }
+}
@@ -7,24 +7,39 @@ import com.akselglyholt.velocityLimboHandler.commands.VlhAdminCommand;
 import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
 import com.akselglyholt.velocityLimboHandler.listeners.CommandExecuteEventListener;
 import com.akselglyholt.velocityLimboHandler.listeners.ConnectionListener;
+import com.akselglyholt.velocityLimboHandler.managers.InMemoryReconnectRateStore;
 import com.akselglyholt.velocityLimboHandler.managers.ReconnectHandler;
+import com.akselglyholt.velocityLimboHandler.managers.ReconnectRateStore;
+import com.akselglyholt.velocityLimboHandler.managers.RedisReconnectRateStore;
+import com.akselglyholt.velocityLimboHandler.managers.ServerHealthMonitor;
+import com.akselglyholt.velocityLimboHandler.managers.ServerPingCache;
 import com.akselglyholt.velocityLimboHandler.misc.InMemoryReconnectBlocker;
+import com.akselglyholt.velocityLimboHandler.misc.MaintenanceStatusCache;
 import com.akselglyholt.velocityLimboHandler.misc.ReconnectBlocker;
+import com.akselglyholt.velocityLimboHandler.misc.RespClient;
 import com.akselglyholt.velocityLimboHandler.misc.Utility;
+import com.akselglyholt.velocityLimboHandler.storage.InMemoryQueueBackend;
 import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
+import com.akselglyholt.velocityLimboHandler.storage.QueueBackend;
+import com.akselglyholt.velocityLimboHandler.storage.QueuePersistence;
+import com.akselglyholt.velocityLimboHandler.storage.RedisQueueBackend;
+import com.akselglyholt.velocityLimboHandler.tasks.InactivePlayerSweepTask;
+import com.akselglyholt.velocityLimboHandler.tasks.LimboExecutors;
+import com.akselglyholt.velocityLimboHandler.tasks.LimboExecutors.RepeatingTask;
 import com.akselglyholt.velocityLimboHandler.tasks.QueueNotifierTask;
+import com.akselglyholt.velocityLimboHandler.tasks.QueuePersistenceTask;
 import com.akselglyholt.velocityLimboHandler.tasks.ReconnectionTask;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.EventManager;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyPreShutdownEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import com.velocitypowered.api.scheduler.ScheduledTask;
 import dev.dejvokep.boostedyaml.YamlDocument;
 import dev.faststats.core.ErrorTracker;
 import dev.faststats.core.chart.Chart;
@@ -55,12 +70,26 @@ public class VelocityLimboHandler {
     private static AuthManager authManager;
 
     private ConfigManager configManager;
+    private ServerPingCache serverPingCache;
     private ReconnectHandler reconnectHandler;
-    private ScheduledTask reconnectionTask;
-    private ScheduledTask queueNotifierTask;
+    private ServerHealthMonitor serverHealthMonitor;
+    private RepeatingTask reconnectionTask;
+    private RepeatingTask healthMonitorTask;
+    private RepeatingTask inactiveSweepTask;
+    private RepeatingTask maintenanceRefreshTask;
+    private RepeatingTask queueNotifierTask;
+    private RepeatingTask queuePersistenceTask;
+    private RepeatingTask queueBackendFlushTask;
+
+    private final Path dataDirectory;
+    private QueuePersistence queuePersistence;
+    private QueueBackend queueBackend = new InMemoryQueueBackend();
+    private ReconnectRateStore reconnectRateStore = new InMemoryReconnectRateStore();
 
     private static boolean maintenancePluginPresent = false;
     private static Object maintenanceAPI = null;
+    private static MaintenanceStatusCache maintenanceStatusCache = null;
+    private static LimboExecutors limboExecutors;
 
     private final Metrics.Factory metricsFactory;
     private final VelocityMetrics.Factory faststatsFactory;
@@ -74,6 +103,7 @@ public class VelocityLimboHandler {
     public VelocityLimboHandler(ProxyServer server, @DataDirectory Path dataDirectory, Metrics.Factory metricsFactoryInstance, VelocityMetrics.Factory faststatsFactoryInstance) {
         proxyServer = server;
         instance = this;
+        this.dataDirectory = dataDirectory;
         metricsFactory = metricsFactoryInstance;
         faststatsFactory = faststatsFactoryInstance;
 
@@ -123,10 +153,26 @@ public class VelocityLimboHandler {
 
         // Initialize Managers
         authManager = new AuthManager(this, proxyServer, reconnectBlocker);
-        reconnectHandler = new ReconnectHandler(playerManager, authManager, configManager, logger);
+        limboExecutors = new LimboExecutors(configManager.getQueueThreads(), configManager.getNotifyThreads(), configManager.getPingThreads(), configManager.getIoThreads(), logger);
+        serverPingCache = new ServerPingCache(configManager, limboExecutors.executor(LimboExecutors.Pool.PING));
+        if ("redis".equalsIgnoreCase(configManager.getReconnectRateStore())) {
+            reconnectRateStore = new RedisReconnectRateStore(new RespClient(configManager.getRedisHost(), configManager.getRedisPort(), configManager.getRedisPassword()), logger);
+        }
+        reconnectHandler = new ReconnectHandler(playerManager, authManager, configManager, serverPingCache, reconnectRateStore, logger);
+        serverHealthMonitor = new ServerHealthMonitor(proxyServer, serverPingCache, configManager);
 
         logger.info("Loading Limbo Handler!");
 
+        if ("redis".equalsIgnoreCase(configManager.getQueueBackend())) {
+            queueBackend = new RedisQueueBackend(new RespClient(configManager.getRedisHost(), configManager.getRedisPort(), configManager.getRedisPassword()), logger);
+            playerManager.setQueueBackend(queueBackend);
+            logger.info("Sharing reconnect queues through Redis at " + configManager.getRedisHost() + ":" + configManager.getRedisPort());
+        }
+
+        if (configManager.isQueuePersistenceEnabled()) {
+            initializeQueuePersistence();
+        }
+
         EventManager eventManger = proxyServer.getEventManager();
 
         String limboName = configManager.getLimboName();
@@ -157,10 +203,42 @@ public class VelocityLimboHandler {
         reloadTasks();
     }
 
+    // Runs before the proxy disconnects everyone, so the final snapshot still has every queued player
+    @Subscribe
+    public void onPreShutdown(ProxyPreShutdownEvent event) {
+        if (queuePersistence == null) {
+            return;
+        }
+
+        if (queuePersistenceTask != null) {
+            queuePersistenceTask.cancel();
+            queuePersistenceTask = null;
+        }
+
+        try {
+            queuePersistence.writeSnapshot(playerManager::getQueueSnapshot);
+        } catch (IOException e) {
+            logger.warning("Failed to write the queue snapshot: " + e.getMessage());
+        }
+
+        playerManager.setQueuePersistence(null);
+        queuePersistence.close();
+    }
+
     @Subscribe
     public void onShutdown(ProxyShutdownEvent event) {
         if (bstatsMetrics != null) bstatsMetrics.shutdown();
         if (faststatsMetrics != null) faststatsMetrics.shutdown();
+
+        if (limboExecutors != null) limboExecutors.shutdown();
+        if (reconnectHandler != null) reconnectHandler.shutdown();
+
+        if (queueBackendFlushTask != null) {
+            queueBackendFlushTask.cancel();
+            queueBackendFlushTask = null;
+        }
+        queueBackend.close();
+        reconnectRateStore.close();
     }
 
     public synchronized void reloadTasks() {
@@ -174,6 +252,31 @@ public class VelocityLimboHandler {
             queueNotifierTask = null;
         }
 
+        if (healthMonitorTask != null) {
+            healthMonitorTask.cancel();
+            healthMonitorTask = null;
+        }
+
+        if (inactiveSweepTask != null) {
+            inactiveSweepTask.cancel();
+            inactiveSweepTask = null;
+        }
+
+        if (maintenanceRefreshTask != null) {
+            maintenanceRefreshTask.cancel();
+            maintenanceRefreshTask = null;
+        }
+
+        if (queuePersistenceTask != null) {
+            queuePersistenceTask.cancel();
+            queuePersistenceTask = null;
+        }
+
+        if (queueBackendFlushTask != null) {
+            queueBackendFlushTask.cancel();
+            queueBackendFlushTask = null;
+        }
+
         String limboName = configManager.getLimboName();
         String directConnectName = configManager.getDirectConnectServerName();
 
@@ -185,9 +288,49 @@ public class VelocityLimboHandler {
             return;
         }
 
-        reconnectionTask = proxyServer.getScheduler().buildTask(this, new ReconnectionTask(proxyServer, limboServer, playerManager, authManager, configManager, reconnectHandler)).repeat(configManager.getTaskInterval(), TimeUnit.MILLISECONDS).schedule();
+        if (maintenanceStatusCache != null) {
+            maintenanceRefreshTask = limboExecutors.repeat(LimboExecutors.Pool.PING, maintenanceStatusCache, configManager.getMaintenanceRefreshInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        healthMonitorTask = limboExecutors.repeat(LimboExecutors.Pool.PING, serverHealthMonitor, configManager.getHealthCheckInterval(), TimeUnit.MILLISECONDS);
+
+        ReconnectionTask reconnectionRunnable = new ReconnectionTask(proxyServer, limboServer, playerManager, authManager, configManager, reconnectHandler, serverHealthMonitor);
+        reconnectionTask = limboExecutors.repeat(LimboExecutors.Pool.QUEUE, reconnectionRunnable, configManager.getTaskInterval(), TimeUnit.MILLISECONDS);
+
+        // Drain a server's queue as soon as it comes back, instead of waiting for the next reconnection tick
+        serverHealthMonitor.setRecoveryListener(server -> {
+            reconnectHandler.resetBackoff(server);
+
+            if (playerManager.hasQueuedPlayers(server)) {
+                limboExecutors.execute(LimboExecutors.Pool.QUEUE, () -> reconnectionRunnable.wakeUp(server));
+            }
+        });
+
+        queueNotifierTask = limboExecutors.repeat(LimboExecutors.Pool.NOTIFY, new QueueNotifierTask(limboServer, playerManager, configManager), configManager.getQueueNotifyInterval(), TimeUnit.SECONDS);
+        inactiveSweepTask = limboExecutors.repeat(LimboExecutors.Pool.QUEUE, new InactivePlayerSweepTask(playerManager, configManager), configManager.getInactiveSweepInterval(), TimeUnit.SECONDS);
+
+        // Sends batched queue updates and keeps this proxy's heartbeat alive even while no queue is being drained
+        queueBackendFlushTask = limboExecutors.repeat(LimboExecutors.Pool.IO, queueBackend::flush, 1, TimeUnit.SECONDS);
 
-        queueNotifierTask = proxyServer.getScheduler().buildTask(this, new QueueNotifierTask(limboServer, playerManager, configManager)).repeat(configManager.getQueueNotifyInterval(), TimeUnit.SECONDS).schedule();
+        if (queuePersistence != null) {
+            queuePersistenceTask = limboExecutors.repeat(LimboExecutors.Pool.IO, new QueuePersistenceTask(queuePersistence, playerManager, configManager, logger), 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private void initializeQueuePersistence() {
+        QueuePersistence persistence = new QueuePersistence(dataDirectory, logger);
+        try {
+            List<QueuePersistence.Entry> restored = persistence.restore();
+            playerManager.restoreQueues(restored, TimeUnit.SECONDS.toMillis(configManager.getQueueRestoreGrace()));
+            playerManager.setQueuePersistence(persistence);
+            queuePersistence = persistence;
+
+            if (!restored.isEmpty()) {
+                logger.info("Restored " + restored.size() + " queued players from the last queue snapshot.");
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to restore the queue snapshot, queue persistence is disabled: " + e.getMessage());
+        }
     }
 
     private void initializeMaintenanceIntegration() {
@@ -199,6 +342,7 @@ public class VelocityLimboHandler {
 
                 // Call MaintenanceProvider.get() - this directly returns the API instance
                 maintenanceAPI = providerClass.getMethod("get").invoke(null);
+                maintenanceStatusCache = new MaintenanceStatusCache(proxyServer, maintenanceAPI, logger);
 
                 maintenancePluginPresent = true;
                 logger.info("Maintenance plugin detected and integrated successfully.");
@@ -207,6 +351,7 @@ public class VelocityLimboHandler {
                 logger.warning("Failed to integrate with Maintenance plugin: " + e.getMessage());
                 maintenancePluginPresent = false;
                 maintenanceAPI = null;
+                maintenanceStatusCache = null;
             }
         } else {
             logger.info("Maintenance plugin not detected - maintenance checks disabled.");
@@ -222,6 +367,14 @@ public class VelocityLimboHandler {
         return maintenanceAPI;
     }
 
+    public static MaintenanceStatusCache getMaintenanceStatusCache() {
+        return maintenanceStatusCache;
+    }
+
+    public static LimboExecutors getLimboExecutors() {
+        return limboExecutors;
+    }
+
     public static RegisteredServer getLimboServer() {
         return limboServer;
     }
@@ -2,7 +2,9 @@ package com.akselglyholt.velocityLimboHandler.commands;
 
 import com.akselglyholt.velocityLimboHandler.VelocityLimboHandler;
 import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
+import com.akselglyholt.velocityLimboHandler.tasks.LimboExecutors;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
@@ -97,6 +99,7 @@ public class VlhAdminCommand implements SimpleCommand {
         try {
             configManager.load();
             VelocityLimboHandler.getPlayerManager().reloadMessages();
+            Utility.reloadMessages();
             VelocityLimboHandler.getInstance().reloadTasks();
             send(source, "<green>✔ Reload complete.</green> <gray>Configuration, messages, and task schedules were refreshed.</gray>");
         } catch (IOException exception) {
@@ -125,9 +128,24 @@ public class VlhAdminCommand implements SimpleCommand {
         send(source, "<gray>•</gray> <yellow>Queue System:</yellow> " + queueEnabled);
         send(source, "<gray>•</gray> <yellow>Queued Servers:</yellow> <white>" + queuedServers + "</white>");
         send(source, "<gray>•</gray> <yellow>Queued Players:</yellow> <white>" + queuedPlayers + "</white>");
+
+        LimboExecutors executors = VelocityLimboHandler.getLimboExecutors();
+        if (executors != null) {
+            for (LimboExecutors.PoolStats stats : executors.getStats()) {
+                String saturationColor = stats.saturation() >= 1.0 ? "red" : stats.saturation() >= 0.75 ? "yellow" : "green";
+                send(source, "<gray>•</gray> <yellow>" + capitalize(stats.pool().getDisplayName()) + " Threads:</yellow> "
+                        + "<" + saturationColor + ">" + stats.activeThreads() + "/" + stats.threads() + " busy</" + saturationColor + ">"
+                        + " <gray>(" + stats.queuedTasks() + " queued, " + stats.skippedTicks() + " skipped ticks, "
+                        + stats.callerRuns() + " overflowed)</gray>");
+            }
+        }
         source.sendMessage(miniMessage.deserialize(PREFIX + BORDER));
     }
 
+    private static String capitalize(String value) {
+        return value.isEmpty() ? value : Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+
     private void handleQueue(CommandSource source, String[] arguments) {
         if (!source.hasPermission(QUEUE_PERMISSION)) {
             send(source, "<red>You do not have permission to view queue status.</red>");
@@ -1,5 +1,6 @@
 package com.akselglyholt.velocityLimboHandler.config;
 
+import com.akselglyholt.velocityLimboHandler.misc.MessageTemplate;
 import dev.dejvokep.boostedyaml.YamlDocument;
 import dev.dejvokep.boostedyaml.dvs.versioning.BasicVersioning;
 import dev.dejvokep.boostedyaml.route.Route;
@@ -22,16 +23,41 @@ public class ConfigManager {
     private YamlDocument messageConfig;
 
     // Cached values
-    private String bannedMsg;
-    private String whitelistedMsg;
-    private String maintenanceModeMsg;
-    private String queuePositionMsg;
-    private String queuePositionJoinMsg;
+    private MessageTemplate bannedMessage;
+    private MessageTemplate notWhitelistedMessage;
+    private MessageTemplate maintenanceModeMessage;
+    private MessageTemplate queuePositionMessage;
 
     private String limboName;
     private String directConnectServerName;
     private int taskInterval;
     private int queueNotifyInterval;
+    private int maxReconnectsPerTick;
+    private boolean adaptiveAdmissionEnabled;
+    private int admissionInitialWindow;
+    private int admissionLatencyThreshold;
+    private int pingCacheTtl;
+    private int healthCheckInterval;
+    private int healthCheckThreshold;
+    private int reconnectBackoffBase;
+    private int reconnectBackoffMax;
+    private int reconnectRateLimit;
+    private String reconnectRateStore;
+    private int inactiveSweepInterval;
+    private int inactiveSweepBatchSize;
+    private int maintenanceRefreshInterval;
+    private String queueStore;
+    private boolean queuePersistenceEnabled;
+    private int queueSnapshotInterval;
+    private int queueRestoreGrace;
+    private String queueBackend;
+    private int queueThreads;
+    private int notifyThreads;
+    private int pingThreads;
+    private int ioThreads;
+    private String redisHost;
+    private int redisPort;
+    private String redisPassword;
     private boolean queueEnabled;
     private List<String> disabledCommands;
 
@@ -69,16 +95,41 @@ public class ConfigManager {
     }
 
     private void cacheValues() {
-        bannedMsg = messageConfig.getString(Route.from("bannedMessage"));
-        whitelistedMsg = messageConfig.getString(Route.from("notWhitelisted"));
-        maintenanceModeMsg = messageConfig.getString(Route.from("maintenanceMode"));
-        queuePositionMsg = messageConfig.getString(Route.from("queuePosition"));
-        queuePositionJoinMsg = messageConfig.getString(Route.from("queuePositionJoin"));
+        bannedMessage = MessageTemplate.compile(messageConfig.getString(Route.from("bannedMessage")));
+        notWhitelistedMessage = MessageTemplate.compile(messageConfig.getString(Route.from("notWhitelisted")));
+        maintenanceModeMessage = MessageTemplate.compile(messageConfig.getString(Route.from("maintenanceMode")));
+        queuePositionMessage = MessageTemplate.compile(messageConfig.getString(Route.from("queuePosition")));
 
         limboName = config.getString(Route.from("limbo-name"));
         directConnectServerName = config.getString(Route.from("direct-connect-server"));
         taskInterval = config.getInt(Route.from("task-interval"));
         queueNotifyInterval = config.getInt(Route.from("queue-notify-interval"));
+        maxReconnectsPerTick = config.getInt(Route.from("max-reconnects-per-tick"), 20);
+        adaptiveAdmissionEnabled = config.getBoolean(Route.from("adaptive-admission"), true);
+        admissionInitialWindow = config.getInt(Route.from("admission-initial-window"), 2);
+        admissionLatencyThreshold = config.getInt(Route.from("admission-latency-threshold"), 2000);
+        pingCacheTtl = config.getInt(Route.from("ping-cache-ttl"), 1000);
+        healthCheckInterval = config.getInt(Route.from("health-check-interval"), 2000);
+        healthCheckThreshold = config.getInt(Route.from("health-check-threshold"), 2);
+        reconnectBackoffBase = config.getInt(Route.from("reconnect-backoff-base"), 1000);
+        reconnectBackoffMax = config.getInt(Route.from("reconnect-backoff-max"), 60000);
+        reconnectRateLimit = config.getInt(Route.from("reconnect-rate-limit"), 0);
+        reconnectRateStore = config.getString(Route.from("reconnect-rate-store"), "local");
+        inactiveSweepInterval = config.getInt(Route.from("inactive-sweep-interval"), 30);
+        inactiveSweepBatchSize = config.getInt(Route.from("inactive-sweep-batch-size"), 100);
+        maintenanceRefreshInterval = config.getInt(Route.from("maintenance-refresh-interval"), 5000);
+        queueStore = config.getString(Route.from("queue-store"), "default");
+        queuePersistenceEnabled = config.getBoolean(Route.from("queue-persistence"), false);
+        queueSnapshotInterval = config.getInt(Route.from("queue-snapshot-interval"), 60);
+        queueRestoreGrace = config.getInt(Route.from("queue-restore-grace"), 120);
+        queueBackend = config.getString(Route.from("queue-backend"), "local");
+        queueThreads = config.getInt(Route.from("queue-threads"), 2);
+        notifyThreads = config.getInt(Route.from("notify-threads"), 1);
+        pingThreads = config.getInt(Route.from("ping-threads"), 2);
+        ioThreads = config.getInt(Route.from("io-threads"), 2);
+        redisHost = config.getString(Route.from("redis-host"), "localhost");
+        redisPort = config.getInt(Route.from("redis-port"), 6379);
+        redisPassword = config.getString(Route.from("redis-password"), "");
         queueEnabled = config.getBoolean(Route.from("queue-enabled"), true);
         disabledCommands = config.getStringList("disabled-commands");
     }
@@ -91,24 +142,20 @@ public class ConfigManager {
         return messageConfig;
     }
 
-    public String getBannedMsg() {
-        return bannedMsg;
+    public MessageTemplate getBannedMessage() {
+        return bannedMessage;
     }
 
-    public String getWhitelistedMsg() {
-        return whitelistedMsg;
+    public MessageTemplate getNotWhitelistedMessage() {
+        return notWhitelistedMessage;
     }
 
-    public String getMaintenanceModeMsg() {
-        return maintenanceModeMsg;
+    public MessageTemplate getMaintenanceModeMessage() {
+        return maintenanceModeMessage;
     }
 
-    public String getQueuePositionMsg() {
-        return queuePositionMsg;
-    }
-
-    public String getQueuePositionJoinMsg() {
-        return queuePositionJoinMsg;
+    public MessageTemplate getQueuePositionMessage() {
+        return queuePositionMessage;
     }
 
     public String getLimboName() {
@@ -127,6 +174,110 @@ public class ConfigManager {
         return queueNotifyInterval;
     }
 
+    public int getMaxReconnectsPerTick() {
+        return maxReconnectsPerTick;
+    }
+
+    public boolean isAdaptiveAdmissionEnabled() {
+        return adaptiveAdmissionEnabled;
+    }
+
+    public int getAdmissionInitialWindow() {
+        return admissionInitialWindow;
+    }
+
+    public int getAdmissionLatencyThreshold() {
+        return admissionLatencyThreshold;
+    }
+
+    public int getPingCacheTtl() {
+        return pingCacheTtl;
+    }
+
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public int getHealthCheckThreshold() {
+        return healthCheckThreshold;
+    }
+
+    public int getReconnectBackoffBase() {
+        return reconnectBackoffBase;
+    }
+
+    public int getReconnectBackoffMax() {
+        return reconnectBackoffMax;
+    }
+
+    public int getReconnectRateLimit() {
+        return reconnectRateLimit;
+    }
+
+    public String getReconnectRateStore() {
+        return reconnectRateStore;
+    }
+
+    public int getInactiveSweepInterval() {
+        return inactiveSweepInterval;
+    }
+
+    public int getInactiveSweepBatchSize() {
+        return inactiveSweepBatchSize;
+    }
+
+    public int getMaintenanceRefreshInterval() {
+        return maintenanceRefreshInterval;
+    }
+
+    public String getQueueStore() {
+        return queueStore;
+    }
+
+    public boolean isQueuePersistenceEnabled() {
+        return queuePersistenceEnabled;
+    }
+
+    public int getQueueSnapshotInterval() {
+        return queueSnapshotInterval;
+    }
+
+    public int getQueueRestoreGrace() {
+        return queueRestoreGrace;
+    }
+
+    public String getQueueBackend() {
+        return queueBackend;
+    }
+
+    public int getQueueThreads() {
+        return queueThreads;
+    }
+
+    public int getNotifyThreads() {
+        return notifyThreads;
+    }
+
+    public int getPingThreads() {
+        return pingThreads;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public String getRedisHost() {
+        return redisHost;
+    }
+
+    public int getRedisPort() {
+        return redisPort;
+    }
+
+    public String getRedisPassword() {
+        return redisPassword;
+    }
+
     public boolean isQueueEnabled() {
         return queueEnabled;
     }
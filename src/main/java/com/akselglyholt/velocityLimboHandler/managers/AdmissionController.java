@@ -0,0 +1,120 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) admission window per backend server.
+ * <p>
+ * The window is the number of reconnects that may be in flight to a server at once. Every reconnect that
+ * succeeds within the latency threshold widens it by one, up to {@code max-reconnects-per-tick}. A failed or
+ * slow reconnect halves it, at most once per latency threshold so a single burst of failures doesn't collapse
+ * it straight to the minimum. A backend that is still warming up after a restart therefore only receives a
+ * trickle of players, while a healthy one quickly ramps up to the configured ceiling.
+ */
+public class AdmissionController {
+    private static final int MIN_WINDOW = 1;
+
+    private final ConfigManager configManager;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public AdmissionController(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    public int getWindow(RegisteredServer server) {
+        int maxWindow = maxWindow();
+        if (!configManager.isAdaptiveAdmissionEnabled()) {
+            return maxWindow;
+        }
+
+        return Math.min(window(server).size(), maxWindow);
+    }
+
+    public void recordSuccess(RegisteredServer server, long latencyNanos) {
+        if (!configManager.isAdaptiveAdmissionEnabled()) {
+            return;
+        }
+
+        if (latencyNanos > latencyThresholdNanos()) {
+            // Joined, but the backend is struggling; treat it as congestion
+            window(server).decrease(latencyThresholdNanos());
+            return;
+        }
+
+        window(server).increase(maxWindow());
+    }
+
+    public void recordFailure(RegisteredServer server) {
+        if (!configManager.isAdaptiveAdmissionEnabled()) {
+            return;
+        }
+
+        window(server).decrease(latencyThresholdNanos());
+    }
+
+    private Window window(RegisteredServer server) {
+        return windows.computeIfAbsent(server.getServerInfo().getName(),
+                key -> new Window(Math.max(MIN_WINDOW, Math.min(configManager.getAdmissionInitialWindow(), maxWindow()))));
+    }
+
+    private int maxWindow() {
+        return Math.max(MIN_WINDOW, configManager.getMaxReconnectsPerTick());
+    }
+
+    private long latencyThresholdNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(configManager.getAdmissionLatencyThreshold());
+    }
+
+    private static final class Window {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int size;
+        private long lastDecreaseNanos;
+        private boolean decreased;
+
+        private Window(int size) {
+            this.size = size;
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void increase(int maxWindow) {
+            lock.lock();
+            try {
+                if (size < maxWindow) {
+                    size++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void decrease(long cooldownNanos) {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                if (decreased && now - lastDecreaseNanos < cooldownNanos) {
+                    return;
+                }
+
+                size = Math.max(MIN_WINDOW, size / 2);
+                lastDecreaseNanos = now;
+                decreased = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
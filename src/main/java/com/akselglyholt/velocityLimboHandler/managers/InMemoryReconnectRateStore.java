@@ -0,0 +1,51 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket per server that refills at {@code permitsPerSecond} and holds at most one second worth of tokens.
+ */
+public class InMemoryReconnectRateStore implements ReconnectRateStore {
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryAcquire(String serverName, int permitsPerSecond) {
+        return buckets.computeIfAbsent(serverName, key -> new Bucket(permitsPerSecond))
+                .tryAcquire(System.nanoTime(), permitsPerSecond);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static final class Bucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private double tokens;
+        private long refilledAtNanos = System.nanoTime();
+
+        Bucket(int permitsPerSecond) {
+            this.tokens = permitsPerSecond;
+        }
+
+        boolean tryAcquire(long now, int permitsPerSecond) {
+            lock.lock();
+            try {
+                double refill = (now - refilledAtNanos) * permitsPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+                tokens = Math.min(permitsPerSecond, tokens + refill);
+                refilledAtNanos = now;
+
+                if (tokens < 1) {
+                    return false;
+                }
+
+                tokens -= 1;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exponential backoff with full jitter for reconnect attempts per backend server.
+ * <p>
+ * After the n-th consecutive failure the server is left alone for a random delay between zero and
+ * {@code min(reconnect-backoff-max, reconnect-backoff-base * 2^n)}. Failures reported while the server is already
+ * backing off (e.g. the rest of a batch that was dispatched together) don't extend the delay. A successful reconnect
+ * or an observed recovery resets the backoff.
+ */
+public class ReconnectBackoff {
+    private static final int MAX_EXPONENT = 20;
+
+    private final ConfigManager configManager;
+    private final Map<String, BackoffState> states = new ConcurrentHashMap<>();
+
+    public ReconnectBackoff(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    public boolean isBackingOff(RegisteredServer server) {
+        BackoffState state = states.get(server.getServerInfo().getName());
+        return state != null && state.isBackingOff(System.nanoTime());
+    }
+
+    public void recordFailure(RegisteredServer server) {
+        long baseNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, configManager.getReconnectBackoffBase()));
+        long maxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, configManager.getReconnectBackoffMax()));
+
+        states.computeIfAbsent(server.getServerInfo().getName(), key -> new BackoffState())
+                .recordFailure(System.nanoTime(), baseNanos, maxNanos);
+    }
+
+    public void reset(RegisteredServer server) {
+        states.remove(server.getServerInfo().getName());
+    }
+
+    private static final class BackoffState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int failures;
+        private long retryAtNanos;
+
+        boolean isBackingOff(long now) {
+            lock.lock();
+            try {
+                return now - retryAtNanos < 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordFailure(long now, long baseNanos, long maxNanos) {
+            lock.lock();
+            try {
+                if (failures > 0 && now - retryAtNanos < 0) {
+                    return;
+                }
+
+                failures = Math.min(failures + 1, MAX_EXPONENT);
+                long ceiling = Math.min(maxNanos, baseNanos << failures);
+                if (ceiling <= 0) {
+                    ceiling = maxNanos;
+                }
+
+                retryAtNanos = now + ThreadLocalRandom.current().nextLong(ceiling + 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
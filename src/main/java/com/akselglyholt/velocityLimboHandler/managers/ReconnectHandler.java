@@ -2,7 +2,6 @@ package com.akselglyholt.velocityLimboHandler.managers;
 
 import com.akselglyholt.velocityLimboHandler.auth.AuthManager;
 import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
-import com.akselglyholt.velocityLimboHandler.misc.MessageFormatter;
 import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
 import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
@@ -13,21 +12,50 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 public class ReconnectHandler {
     private final PlayerManager playerManager;
     private final AuthManager authManager;
     private final ConfigManager configManager;
+    private final ServerPingCache serverPingCache;
     private final Logger logger;
     private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private final Map<String, AtomicInteger> inFlightByServer = new ConcurrentHashMap<>();
+    private final AdmissionController admissionController;
+    private final ReconnectBackoff reconnectBackoff;
+    private final ReconnectRateLimiter rateLimiter;
+    // Hard cap on attempts per server that are past the queue, on top of the admission window
+    private final Map<String, AttemptPermits> permitsByServer = new ConcurrentHashMap<>();
+    private final ExecutorService reconnectExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vlh-reconnect-", 0).factory());
+
+    public ReconnectHandler(PlayerManager playerManager, AuthManager authManager, ConfigManager configManager,
+                            ServerPingCache serverPingCache, Logger logger) {
+        this(playerManager, authManager, configManager, serverPingCache, new InMemoryReconnectRateStore(), logger);
+    }
 
-    public ReconnectHandler(PlayerManager playerManager, AuthManager authManager, ConfigManager configManager, Logger logger) {
+    public ReconnectHandler(PlayerManager playerManager, AuthManager authManager, ConfigManager configManager,
+                            ServerPingCache serverPingCache, ReconnectRateStore rateStore, Logger logger) {
         this.playerManager = playerManager;
         this.authManager = authManager;
         this.configManager = configManager;
+        this.serverPingCache = serverPingCache;
         this.logger = logger;
+        this.admissionController = new AdmissionController(configManager);
+        this.reconnectBackoff = new ReconnectBackoff(configManager);
+        this.rateLimiter = new ReconnectRateLimiter(configManager, rateStore);
     }
 
     public boolean reconnectPlayer(Player player) {
@@ -40,105 +68,237 @@ public class ReconnectHandler {
         if (playerManager.isPlayerConnecting(player)) return false;
 
         playerManager.setPlayerConnecting(player, true);
+        AtomicInteger inFlight = inFlightCounter(previousServer);
+        inFlight.incrementAndGet();
+
+        try {
+            reconnectExecutor.execute(() -> runAttempt(player, previousServer, inFlight));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            finishAttempt(player, inFlight);
+            return false;
+        }
 
-        // If enabled, check if a server responds to pings before connecting, asynchronously
-        previousServer.ping().whenComplete((ping, throwable) -> {
-            if (throwable != null || ping == null) {
-                playerManager.setPlayerConnecting(player, false);
-                return; // Server offline
-            }
+        return true;
+    }
 
-            // Check if the server is full
-            if (ping.getPlayers().isEmpty()) {
-                playerManager.setPlayerConnecting(player, false);
-                return;
-            }
+    /**
+     * Stops the reconnect pipeline, interrupting attempts that are still waiting for a permit, a ping or a connect
+     * result. Interrupted attempts give up without touching the server's health or backoff.
+     */
+    public void shutdown() {
+        reconnectExecutor.shutdownNow();
+    }
+
+    // Runs on its own virtual thread, so blocking on the ping and connect futures only parks this attempt
+    private void runAttempt(Player player, RegisteredServer previousServer, AtomicInteger inFlight) {
+        Semaphore permits = permitsFor(previousServer);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finishAttempt(player, inFlight);
+            return;
+        }
 
-            ServerPing.Players serverPlayers = ping.getPlayers().get();
-            int maxPlayers = serverPlayers.getMax();
-            int onlinePlayers = serverPlayers.getOnline();
+        try {
+            attempt(player, previousServer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warning("Reconnect attempt for " + player.getUsername() + " failed: " + e.getMessage());
+        } finally {
+            permits.release();
+            finishAttempt(player, inFlight);
+        }
+    }
+
+    // Waits with get() rather than join() so that shutdown() can interrupt the wait
+    private void attempt(Player player, RegisteredServer previousServer) throws InterruptedException {
+        // Check if the server responds to pings before connecting, shared with other attempts
+        ServerPing ping;
+        try {
+            ping = serverPingCache.ping(previousServer).get();
+        } catch (ExecutionException | CancellationException e) {
+            ping = null;
+        }
 
-            if (maxPlayers <= onlinePlayers) {
-                playerManager.setPlayerConnecting(player, false);
+        if (ping == null) {
+            recordServerFailure(previousServer);
+            return; // Server offline
+        }
+
+        // Check if the server is full
+        if (ping.getPlayers().isEmpty()) return;
+
+        ServerPing.Players serverPlayers = ping.getPlayers().get();
+        int maxPlayers = serverPlayers.getMax();
+        int onlinePlayers = serverPlayers.getOnline();
+
+        if (maxPlayers <= onlinePlayers) {
+            recordServerFailure(previousServer);
+            return;
+        }
+
+        // Check if maintenance mode is enabled on Backend Server
+        if (Utility.isServerInMaintenance(previousServer.getServerInfo().getName())) {
+            // Check if the user has bypass permission for Maintenance or is admin
+            if (player.hasPermission("maintenance.admin")
+                    || player.hasPermission("maintenance.bypass")
+                    || player.hasPermission("maintenance.singleserver.bypass." + previousServer.getServerInfo().getName())
+                    || Utility.playerMaintenanceWhitelisted(player)) {
+                logger.info("[Maintenance Bypass] " + player.getUsername() + " bypassed queue to join " + previousServer.getServerInfo().getName());
+            } else {
                 return;
             }
+        }
 
-            // Check if maintenance mode is enabled on Backend Server
-            if (Utility.isServerInMaintenance(previousServer.getServerInfo().getName())) {
-                // Check if the user has bypass permission for Maintenance or is admin
-                if (player.hasPermission("maintenance.admin")
-                        || player.hasPermission("maintenance.bypass")
-                        || player.hasPermission("maintenance.singleserver.bypass." + previousServer.getServerInfo().getName())
-                        || Utility.playerMaintenanceWhitelisted(player)) {
-                    logger.info("[Maintenance Bypass] " + player.getUsername() + " bypassed queue to join " + previousServer.getServerInfo().getName());
-                } else {
-                    playerManager.setPlayerConnecting(player, false);
-                    return;
-                }
-            }
+        // Over the server's reconnect rate, network-wide when the rate store is shared; retried on a later tick
+        if (!rateLimiter.tryAcquire(previousServer)) return;
+
+        Utility.logInformational(String.format("Connecting %s to %s", player.getUsername(), previousServer.getServerInfo().getName()));
 
-            Utility.logInformational(String.format("Connecting %s to %s", player.getUsername(), previousServer.getServerInfo().getName()));
+        long connectStartedNanos = System.nanoTime();
+        ConnectionRequestBuilder.Result result = null;
+        Throwable connectionThrowable = null;
+        try {
+            result = player.createConnectionRequest(previousServer).connect().get();
+        } catch (ExecutionException e) {
+            connectionThrowable = e.getCause() != null ? e.getCause() : e;
+        } catch (CancellationException e) {
+            connectionThrowable = e;
+        }
 
-            player.createConnectionRequest(previousServer).connect().whenComplete(((result, connectionThrowable) -> {
-                playerManager.setPlayerConnecting(player, false);
+        if (result != null && result.isSuccessful()) {
+            admissionController.recordSuccess(previousServer, System.nanoTime() - connectStartedNanos);
+            reconnectBackoff.reset(previousServer);
+            Utility.logInformational(String.format("Successfully reconnected %s to %s", player.getUsername(), previousServer.getServerInfo().getName()));
+            playerManager.removePlayerIssue(player);
+            return;
+        }
 
-                if (result.isSuccessful()) {
-                    Utility.logInformational(String.format("Successfully reconnected %s to %s", player.getUsername(), previousServer.getServerInfo().getName()));
-                    playerManager.removePlayerIssue(player);
-                    return;
-                }
+        if (result != null && result.getStatus() == ConnectionRequestBuilder.Status.CONNECTION_IN_PROGRESS) return;
 
-                if (result.getStatus() == ConnectionRequestBuilder.Status.CONNECTION_IN_PROGRESS) return;
+        Utility.logInformational(String.format("Connection failed for %s to %s. Result status: %s",
+                player.getUsername(),
+                previousServer.getServerInfo().getName(),
+                result != null ? result.getStatus() : "ERROR"));
 
-                Utility.logInformational(String.format("Connection failed for %s to %s. Result status: %s",
-                        player.getUsername(),
-                        previousServer.getServerInfo().getName(),
-                        result.getStatus()));
+        if (connectionThrowable != null) {
+            // Get the error message from throwable
+            String errorMessage = connectionThrowable.getMessage();
+            if (errorMessage == null) errorMessage = "";
 
-                if (connectionThrowable != null) {
-                    // Get the error message from throwable
-                    String errorMessage = connectionThrowable.getMessage();
-                    if (errorMessage == null) errorMessage = "";
+            // Notify user of their issue, and them to issue list
+            if (playerConnectIssue(player, errorMessage.toLowerCase())) return;
 
-                    // Also check the result component if available
-                    String reasonFromComponent = "";
-                    if (result.getReasonComponent().isPresent()) {
-                        reasonFromComponent = PlainTextComponentSerializer.plainText().serialize(result.getReasonComponent().get());
-                    }
+            // Anything that isn't player specific counts against the backend
+            recordServerFailure(previousServer);
 
-                    // Check both the throwable message and the component reason
-                    String combinedErrorMessage = (errorMessage + " " + reasonFromComponent).toLowerCase();
+            // Handle any other connection errors
+            player.sendMessage(miniMessage.deserialize("<red>❌ Failed to connect: " + errorMessage + "</red>"));
+        } else {
+            // Handle case where we have a result but no throwable
+            Optional<Component> reasonComponent = result.getReasonComponent();
+            String reason = reasonComponent
+                    .map(component -> PlainTextComponentSerializer.plainText().serialize(component).toLowerCase())
+                    .orElse("");
 
-                    // Notify user of their issue, and them to issue list
-                    if (playerConnectIssue(player, combinedErrorMessage)) return;
+            // Notify user of their issue, and them to issue list
+            if (playerConnectIssue(player, reason)) return;
 
-                    // Handle any other connection errors
-                    player.sendMessage(miniMessage.deserialize("<red>❌ Failed to connect: " + (errorMessage.isEmpty() ? reasonFromComponent : errorMessage) + "</red>"));
-                } else {
-                    // Handle case where we have a result but no throwable
-                    Optional<Component> reasonComponent = result.getReasonComponent();
+            recordServerFailure(previousServer);
 
-                    if (reasonComponent.isPresent()) {
-                        String reason = PlainTextComponentSerializer.plainText().serialize(reasonComponent.get()).toLowerCase();
+            if (reasonComponent.isPresent()) {
+                // Handle any other connection errors
+                player.sendMessage(miniMessage.deserialize("<red>❌ Failed to connect: " + reason + "</red>"));
+            }
+        }
+    }
 
-                        // Notify user of their issue, and them to issue list
-                        if (playerConnectIssue(player, reason)) return;
+    /**
+     * @return how many concurrent reconnect attempts the server's admission window currently allows
+     */
+    public int getAdmissionWindow(RegisteredServer server) {
+        return admissionController.getWindow(server);
+    }
 
-                        // Handle any other connection errors
-                        player.sendMessage(miniMessage.deserialize("<red>❌ Failed to connect: " + reason + "</red>"));
-                    }
-                }
-            }));
-        });
+    /**
+     * @return true while reconnects to the server are paused after repeated failures
+     */
+    public boolean isBackingOff(RegisteredServer server) {
+        return reconnectBackoff.isBackingOff(server);
+    }
 
-        return true;
+    /**
+     * Lifts any backoff for the server, e.g. because it was just seen coming back online.
+     */
+    public void resetBackoff(RegisteredServer server) {
+        reconnectBackoff.reset(server);
+    }
+
+    /**
+     * @return how many reconnect attempts to the server are currently between the ping and the connect result
+     */
+    public int getInFlightCount(RegisteredServer server) {
+        AtomicInteger inFlight = inFlightByServer.get(server.getServerInfo().getName());
+        return inFlight == null ? 0 : inFlight.get();
+    }
+
+    // Follows max-reconnects-per-tick, so a reload resizes the cap of servers that already have one
+    private Semaphore permitsFor(RegisteredServer server) {
+        int size = Math.max(1, configManager.getMaxReconnectsPerTick());
+        AttemptPermits permits = permitsByServer.computeIfAbsent(server.getServerInfo().getName(),
+                key -> new AttemptPermits(size));
+        permits.resize(size);
+        return permits;
+    }
+
+    private AtomicInteger inFlightCounter(RegisteredServer server) {
+        return inFlightByServer.computeIfAbsent(server.getServerInfo().getName(), key -> new AtomicInteger());
+    }
+
+    private void recordServerFailure(RegisteredServer server) {
+        admissionController.recordFailure(server);
+        reconnectBackoff.recordFailure(server);
+    }
+
+    private void finishAttempt(Player player, AtomicInteger inFlight) {
+        playerManager.setPlayerConnecting(player, false);
+        inFlight.decrementAndGet();
+    }
+
+    private static final class AttemptPermits extends Semaphore {
+        private final ReentrantLock resizeLock = new ReentrantLock();
+        private volatile int size;
+
+        private AttemptPermits(int size) {
+            super(size);
+            this.size = size;
+        }
+
+        // Attempts holding a permit keep it; a smaller cap takes effect as they release theirs
+        private void resize(int newSize) {
+            if (newSize == size) return;
+
+            resizeLock.lock();
+            try {
+                int delta = newSize - size;
+                size = newSize;
+                if (delta > 0) {
+                    release(delta);
+                } else if (delta < 0) {
+                    reducePermits(-delta);
+                }
+            } finally {
+                resizeLock.unlock();
+            }
+        }
     }
 
     private boolean playerConnectIssue(Player player, String reason) {
         if (reason.contains("ban") || reason.contains("banned")) {
-            String formattedMsg = MessageFormatter.formatMessage(configManager.getBannedMsg(), player);
-
-            player.sendMessage(miniMessage.deserialize(formattedMsg));
+            player.sendMessage(configManager.getBannedMessage().render(() -> playerManager.getQueuePosition(player)));
 
             // Mark them with an issue instead of kicking
             playerManager.addPlayerWithIssue(player, "banned");
@@ -149,9 +309,7 @@ public class ReconnectHandler {
         }
 
         if (reason.contains("whitelist") || reason.contains("not whitelisted")) {
-            String formattedMsg = MessageFormatter.formatMessage(configManager.getWhitelistedMsg(), player);
-
-            player.sendMessage(miniMessage.deserialize(formattedMsg));
+            player.sendMessage(configManager.getNotWhitelistedMessage().render(() -> playerManager.getQueuePosition(player)));
 
             // Mark them with an issue instead of kicking
             playerManager.addPlayerWithIssue(player, "not_whitelisted");
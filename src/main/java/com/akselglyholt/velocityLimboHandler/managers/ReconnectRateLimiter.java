@@ -0,0 +1,30 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+/**
+ * Caps how many reconnects per second a backend server receives, checked right before a connection request is sent.
+ * With a shared {@link ReconnectRateStore} the cap applies to the sum over all proxies.
+ */
+public class ReconnectRateLimiter {
+    private final ConfigManager configManager;
+    private final ReconnectRateStore store;
+
+    public ReconnectRateLimiter(ConfigManager configManager, ReconnectRateStore store) {
+        this.configManager = configManager;
+        this.store = store;
+    }
+
+    /**
+     * @return true if a reconnect to the server may be sent now; always true when no limit is configured
+     */
+    public boolean tryAcquire(RegisteredServer server) {
+        int permitsPerSecond = configManager.getReconnectRateLimit();
+        if (permitsPerSecond <= 0) {
+            return true;
+        }
+
+        return store.tryAcquire(server.getServerInfo().getName(), permitsPerSecond);
+    }
+}
@@ -0,0 +1,17 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+/**
+ * Where the reconnect rate limit keeps its counts. The in-memory store limits one proxy; a shared store limits the
+ * total across every proxy using it.
+ */
+public interface ReconnectRateStore {
+
+    /**
+     * Takes one reconnect from the server's allowance.
+     *
+     * @return false if the server's allowance of {@code permitsPerSecond}, refilled continuously, is used up
+     */
+    boolean tryAcquire(String serverName, int permitsPerSecond);
+
+    void close();
+}
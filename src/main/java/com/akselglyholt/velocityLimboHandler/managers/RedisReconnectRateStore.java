@@ -0,0 +1,82 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.misc.RespClient;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Keeps one token bucket per server in Redis, so the limit holds for the whole network rather than per proxy.
+ * <p>
+ * The bucket is refilled and taken from by a script, so concurrent proxies can't both take the last token. Time comes
+ * from Redis ({@code TIME}), not from the proxies, so their clocks don't need to agree. Like the in-memory store the
+ * bucket holds at most one second worth of tokens. While Redis is unreachable every proxy falls back to its own
+ * in-memory bucket, and after a failed call it stops asking Redis until the client's failure cooldown has passed, so
+ * attempts don't queue up behind the client's connect timeout.
+ */
+public class RedisReconnectRateStore implements ReconnectRateStore {
+    private static final String KEY_PREFIX = "vlh:reconnect-rate:";
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    // KEYS[1] = bucket, ARGV[1] = tokens per second; returns 1 if a token was taken. Times are in milliseconds, which
+    // Lua still formats without losing digits. The bucket is full again after a second, so it may expire after that.
+    // Writing after TIME relies on scripts being replicated by their effects, the default since Redis 5.
+    static final String TOKEN_BUCKET_SCRIPT = """
+            local rate = tonumber(ARGV[1])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'updated')
+            local tokens = tonumber(bucket[1]) or rate
+            local updated = tonumber(bucket[2]) or now
+            tokens = math.min(rate, tokens + math.max(0, now - updated) * rate / 1000)
+            local allowed = 0
+            if tokens >= 1 then
+              tokens = tokens - 1
+              allowed = 1
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'updated', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], 2000)
+            return allowed
+            """;
+
+    private final RespClient client;
+    private final Logger logger;
+    private final InMemoryReconnectRateStore fallback = new InMemoryReconnectRateStore();
+    private volatile long lastFailureLogNanos = System.nanoTime() - FAILURE_LOG_INTERVAL_NANOS;
+
+    public RedisReconnectRateStore(RespClient client, Logger logger) {
+        this.client = client;
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean tryAcquire(String serverName, int permitsPerSecond) {
+        if (client.isUnavailable()) {
+            return fallback.tryAcquire(serverName, permitsPerSecond);
+        }
+
+        try {
+            Object reply = client.command("EVAL", TOKEN_BUCKET_SCRIPT, "1", KEY_PREFIX + serverName,
+                    String.valueOf(permitsPerSecond));
+            if (!(reply instanceof Long allowed)) {
+                throw new IOException("Unexpected reply from the rate limit script: " + reply);
+            }
+
+            return allowed == 1;
+        } catch (IOException e) {
+            long now = System.nanoTime();
+            if (now - lastFailureLogNanos >= FAILURE_LOG_INTERVAL_NANOS) {
+                lastFailureLogNanos = now;
+                logger.warning("Failed to reach Redis for the reconnect rate limit, limiting per proxy: " + e.getMessage());
+            }
+
+            return fallback.tryAcquire(serverName, permitsPerSecond);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,9 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+public enum ServerHealth {
+    UNKNOWN,
+    UP,
+    DOWN,
+    FULL,
+    MAINTENANCE
+}
@@ -0,0 +1,211 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.misc.Utility;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically pings every registered backend and tracks whether it is {@link ServerHealth#UP UP},
+ * {@link ServerHealth#DOWN DOWN}, {@link ServerHealth#FULL FULL} or in {@link ServerHealth#MAINTENANCE MAINTENANCE}.
+ * <p>
+ * A server only changes state after the new state has been observed {@code health-check-threshold} times in a row,
+ * so a single dropped ping doesn't flap it between UP and DOWN. The first observation of a server is taken as-is.
+ * The recovery listener doesn't wait for that confirmation: it runs on the first UP ping after the server was down,
+ * full or in maintenance, and the reconnect admission window and backoff keep a flapping server from being flooded.
+ * <p>
+ * A server that is confirmed down is pinged less often, the delay doubling with every failed ping up to
+ * {@code reconnect-backoff-max}, so a server that is gone for good doesn't cost a ping every interval.
+ */
+public class ServerHealthMonitor implements Runnable {
+    private static final int MAX_DOWN_PING_EXPONENT = 20;
+
+    private final ProxyServer proxyServer;
+    private final ServerPingCache serverPingCache;
+    private final ConfigManager configManager;
+    private final Map<String, HealthRecord> records = new ConcurrentHashMap<>();
+    private volatile Consumer<RegisteredServer> recoveryListener = server -> {
+    };
+
+    public ServerHealthMonitor(ProxyServer proxyServer, ServerPingCache serverPingCache, ConfigManager configManager) {
+        this.proxyServer = proxyServer;
+        this.serverPingCache = serverPingCache;
+        this.configManager = configManager;
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        for (RegisteredServer server : proxyServer.getAllServers()) {
+            HealthRecord record = records.get(server.getServerInfo().getName());
+            if (record != null && !record.isPingDue(now)) {
+                continue;
+            }
+
+            serverPingCache.ping(server).whenComplete((ping, throwable) -> observe(server, ping, throwable));
+        }
+    }
+
+    /**
+     * Sets the callback that runs on the first UP ping of a server that was down, full or in maintenance, before the
+     * state change is confirmed. It runs on the thread that completed the ping, so it should hand off any real work.
+     */
+    public void setRecoveryListener(Consumer<RegisteredServer> recoveryListener) {
+        this.recoveryListener = recoveryListener;
+    }
+
+    public ServerHealth getHealth(RegisteredServer server) {
+        HealthRecord record = records.get(server.getServerInfo().getName());
+        return record == null ? ServerHealth.UNKNOWN : record.state();
+    }
+
+    /**
+     * @return true if the last confirmed state says the server can't take players right now (down or full)
+     */
+    public boolean isUnavailable(RegisteredServer server) {
+        ServerHealth health = getHealth(server);
+        return health == ServerHealth.DOWN || health == ServerHealth.FULL;
+    }
+
+    /**
+     * @return the free player slots of the latest ping that reported a player count for the server's current state,
+     * or {@link Integer#MAX_VALUE} if there hasn't been one yet. Pings of a server that is down or in maintenance
+     * carry no player count, so they keep the previous value.
+     */
+    public int getFreeSlots(RegisteredServer server) {
+        HealthRecord record = records.get(server.getServerInfo().getName());
+        return record == null ? Integer.MAX_VALUE : record.freeSlots();
+    }
+
+    private void observe(RegisteredServer server, ServerPing ping, Throwable throwable) {
+        String serverName = server.getServerInfo().getName();
+        // -1 while the ping carries no usable player count
+        int freeSlots = -1;
+        ServerHealth observed;
+
+        if (throwable != null || ping == null) {
+            observed = ServerHealth.DOWN;
+        } else if (Utility.isServerInMaintenance(serverName)) {
+            observed = ServerHealth.MAINTENANCE;
+        } else {
+            Optional<ServerPing.Players> players = ping.getPlayers();
+            freeSlots = players.map(serverPlayers -> Math.max(0, serverPlayers.getMax() - serverPlayers.getOnline())).orElse(-1);
+            observed = freeSlots > 0 ? ServerHealth.UP : ServerHealth.FULL;
+        }
+
+        HealthRecord record = records.computeIfAbsent(serverName, key -> new HealthRecord());
+        ServerHealth previous = record.observe(observed, freeSlots, Math.max(1, configManager.getHealthCheckThreshold()));
+        record.scheduleNextPing(System.nanoTime(),
+                TimeUnit.MILLISECONDS.toNanos(Math.max(1, configManager.getHealthCheckInterval())),
+                TimeUnit.MILLISECONDS.toNanos(Math.max(1, configManager.getReconnectBackoffMax())));
+        if (previous != null && previous != ServerHealth.UNKNOWN) {
+            Utility.logInformational(String.format("Server %s is now %s (was %s)", serverName, observed, previous));
+        }
+
+        if (record.takeRecovery()) {
+            recoveryListener.accept(server);
+        }
+    }
+
+    static final class HealthRecord {
+        private ServerHealth state = ServerHealth.UNKNOWN;
+        private ServerHealth candidate;
+        private int candidateCount;
+        private int freeSlots = Integer.MAX_VALUE;
+        // Set by the first UP observation after an outage, until the monitor hands it to the recovery listener
+        private boolean recoveryPending;
+        private ServerHealth lastObserved = ServerHealth.UNKNOWN;
+        private int downPings;
+        private long nextPingAtNanos = System.nanoTime();
+
+        synchronized ServerHealth state() {
+            return state;
+        }
+
+        synchronized int freeSlots() {
+            return freeSlots;
+        }
+
+        /**
+         * @return the previous state if this observation caused a transition, otherwise null
+         */
+        synchronized ServerHealth observe(ServerHealth observed, int observedFreeSlots, int threshold) {
+            lastObserved = observed;
+            if (observed == state) {
+                candidate = null;
+                candidateCount = 0;
+                updateFreeSlots(observedFreeSlots);
+                return null;
+            }
+
+            if (observed == candidate) {
+                candidateCount++;
+            } else {
+                if (observed == ServerHealth.UP && state != ServerHealth.UNKNOWN) {
+                    recoveryPending = true;
+                }
+                candidate = observed;
+                candidateCount = 1;
+            }
+
+            // An unconfirmed change, e.g. one odd ping, leaves the free slots of the current state alone
+            if (state != ServerHealth.UNKNOWN && candidateCount < threshold) {
+                return null;
+            }
+
+            ServerHealth previous = state;
+            state = observed;
+            candidate = null;
+            candidateCount = 0;
+            updateFreeSlots(observedFreeSlots);
+            return previous;
+        }
+
+        /**
+         * @return true once after an UP observation started a recovery from down, full or maintenance
+         */
+        synchronized boolean takeRecovery() {
+            boolean pending = recoveryPending;
+            recoveryPending = false;
+            return pending;
+        }
+
+        synchronized boolean isPingDue(long now) {
+            return now - nextPingAtNanos >= 0;
+        }
+
+        /**
+         * Pings a server that is down after {@code interval * 2^n} for its n-th failed ping in a row, capped at
+         * {@code maxNanos}; any other server, or one that just answered again, on every run.
+         */
+        synchronized void scheduleNextPing(long now, long intervalNanos, long maxNanos) {
+            if (state != ServerHealth.DOWN || lastObserved != ServerHealth.DOWN) {
+                downPings = 0;
+                nextPingAtNanos = now;
+                return;
+            }
+
+            downPings = Math.min(downPings + 1, MAX_DOWN_PING_EXPONENT);
+            long delay = Math.min(maxNanos, intervalNanos << downPings);
+            if (delay <= 0) {
+                delay = maxNanos;
+            }
+
+            // Half an interval early, so a run that fires slightly ahead of schedule doesn't skip a whole interval
+            nextPingAtNanos = now + Math.max(0, delay - intervalNanos / 2);
+        }
+
+        private void updateFreeSlots(int observedFreeSlots) {
+            if (observedFreeSlots >= 0) {
+                freeSlots = observedFreeSlots;
+            }
+        }
+    }
+}
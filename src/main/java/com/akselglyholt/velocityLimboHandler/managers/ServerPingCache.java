@@ -0,0 +1,95 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares status pings per backend server.
+ * <p>
+ * Concurrent callers share the ping that is already in flight, and a completed ping (including a failed one)
+ * is reused until {@code ping-cache-ttl} has passed since it completed. Reconnecting 50 players to one server in
+ * the same tick therefore costs one ping instead of 50. Pings complete on the given executor rather than the
+ * proxy's network thread that received the reply.
+ */
+public class ServerPingCache {
+    private final ConfigManager configManager;
+    private final Executor completionExecutor;
+    private final Map<String, CachedPing> pings = new ConcurrentHashMap<>();
+
+    public ServerPingCache(ConfigManager configManager) {
+        this(configManager, Runnable::run);
+    }
+
+    public ServerPingCache(ConfigManager configManager, Executor completionExecutor) {
+        this.configManager = configManager;
+        this.completionExecutor = completionExecutor;
+    }
+
+    public CompletableFuture<ServerPing> ping(RegisteredServer server) {
+        String serverName = server.getServerInfo().getName();
+        long now = System.nanoTime();
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(configManager.getPingCacheTtl());
+
+        CachedPing cached = pings.get(serverName);
+        if (cached != null && cached.isReusable(now, ttlNanos)) {
+            return cached.future();
+        }
+
+        CachedPing fresh = new CachedPing(new CompletableFuture<>());
+        CachedPing current = pings.compute(serverName,
+                (key, existing) -> existing != null && existing.isReusable(now, ttlNanos) ? existing : fresh);
+        if (current != fresh) {
+            // Another caller started a ping in the meantime
+            return current.future();
+        }
+
+        try {
+            server.ping()
+                    .whenCompleteAsync((ping, throwable) -> complete(fresh, ping, throwable), completionExecutor)
+                    // The completion executor refused the callback, e.g. while shutting down
+                    .whenComplete((ignored, throwable) -> complete(fresh, null, throwable));
+        } catch (RuntimeException e) {
+            // A ping that fails before returning a future must not leave a ping in flight forever
+            complete(fresh, null, e);
+        }
+
+        return fresh.future();
+    }
+
+    private static void complete(CachedPing cached, ServerPing ping, Throwable throwable) {
+        if (cached.future().isDone()) {
+            return;
+        }
+
+        cached.completedAtNanos = System.nanoTime();
+        if (throwable != null) {
+            cached.future().completeExceptionally(throwable);
+        } else {
+            cached.future().complete(ping);
+        }
+    }
+
+    private static final class CachedPing {
+        private final CompletableFuture<ServerPing> future;
+        private volatile long completedAtNanos;
+
+        private CachedPing(CompletableFuture<ServerPing> future) {
+            this.future = future;
+        }
+
+        CompletableFuture<ServerPing> future() {
+            return future;
+        }
+
+        boolean isReusable(long now, long ttlNanos) {
+            return !future.isDone() || now - completedAtNanos < ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.akselglyholt.velocityLimboHandler.misc;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the Maintenance plugin's per-server status and its whitelist in a snapshot that the reconnect and notifier
+ * tasks can read without touching the Maintenance API.
+ * <p>
+ * The API is only reachable through reflection, so its methods are resolved into {@link MethodHandle}s once. The
+ * snapshot is rebuilt on a schedule, and straight away whenever the Maintenance plugin announces a change. Change
+ * listeners are built with {@link Proxy}, so they can only be subscribed where the API's listener type is an interface;
+ * otherwise a warning is logged and the schedule alone keeps the snapshot current.
+ */
+public final class MaintenanceStatusCache implements Runnable {
+    private static final String[] CHANGE_EVENTS = {
+            "eu.kennytv.maintenance.api.event.MaintenanceChangedEvent",
+            "eu.kennytv.maintenance.api.event.proxy.ServerMaintenanceChangedEvent"
+    };
+
+    private final ProxyServer proxyServer;
+    private final Object maintenanceAPI;
+    private final Logger logger;
+    private final String[] changeEvents;
+
+    private final MethodHandle globalMaintenance;
+    private final MethodHandle maintenanceByName;
+    private final MethodHandle getServer;
+    private final MethodHandle getSettings;
+    private MethodHandle maintenanceByServer;
+    private MethodHandle getWhitelistedPlayers;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private record Snapshot(boolean global, Set<String> servers, Set<UUID> whitelistedPlayers) {
+        static final Snapshot EMPTY = new Snapshot(false, Set.of(), Set.of());
+    }
+
+    public MaintenanceStatusCache(ProxyServer proxyServer, Object maintenanceAPI, Logger logger) {
+        this(proxyServer, maintenanceAPI, logger, CHANGE_EVENTS);
+    }
+
+    MaintenanceStatusCache(ProxyServer proxyServer, Object maintenanceAPI, Logger logger, String... changeEvents) {
+        this.proxyServer = proxyServer;
+        this.maintenanceAPI = maintenanceAPI;
+        this.logger = logger;
+        this.changeEvents = changeEvents;
+
+        Class<?> apiClass = maintenanceAPI.getClass();
+        this.globalMaintenance = findHandle(apiClass, "isMaintenance");
+        this.maintenanceByName = findHandle(apiClass, "isMaintenance", String.class);
+        this.getServer = findHandle(apiClass, "getServer", String.class);
+        this.getSettings = findHandle(apiClass, "getSettings");
+
+        subscribeToChanges();
+        refresh();
+    }
+
+    public boolean isInMaintenance(String serverName) {
+        Snapshot current = snapshot;
+        return current.global() || current.servers().contains(serverName);
+    }
+
+    public boolean isWhitelisted(UUID playerId) {
+        return snapshot.whitelistedPlayers().contains(playerId);
+    }
+
+    @Override
+    public void run() {
+        refresh();
+    }
+
+    public synchronized void refresh() {
+        snapshot = readSnapshot();
+    }
+
+    private Snapshot readSnapshot() {
+        Set<UUID> whitelistedPlayers = readWhitelist();
+
+        try {
+            if (globalMaintenance != null && (boolean) globalMaintenance.invoke(maintenanceAPI)) {
+                return new Snapshot(true, Set.of(), whitelistedPlayers);
+            }
+        } catch (Throwable ignored) {
+            // Ignore and continue to server-specific checks
+        }
+
+        Set<String> servers = new HashSet<>();
+        for (RegisteredServer server : proxyServer.getAllServers()) {
+            String serverName = server.getServerInfo().getName();
+            if (checkServer(serverName)) {
+                servers.add(serverName);
+            }
+        }
+
+        return new Snapshot(false, Set.copyOf(servers), whitelistedPlayers);
+    }
+
+    private Set<UUID> readWhitelist() {
+        if (getSettings == null) {
+            return Set.of();
+        }
+
+        try {
+            Object settings = getSettings.invoke(maintenanceAPI);
+            if (settings == null) {
+                return Set.of();
+            }
+
+            if (getWhitelistedPlayers == null) {
+                getWhitelistedPlayers = findHandle(settings.getClass(), "getWhitelistedPlayers");
+                if (getWhitelistedPlayers == null) {
+                    return Set.of();
+                }
+            }
+
+            if (!(getWhitelistedPlayers.invoke(settings) instanceof Map<?, ?> whitelistMap)) {
+                return Set.of();
+            }
+
+            Set<UUID> whitelistedPlayers = new HashSet<>();
+            for (Object playerId : whitelistMap.keySet()) {
+                if (playerId instanceof UUID uuid) {
+                    whitelistedPlayers.add(uuid);
+                }
+            }
+
+            return Set.copyOf(whitelistedPlayers);
+        } catch (Throwable e) {
+            logger.warning("Failed to read the Maintenance whitelist: " + e.getMessage());
+            // Keep the last known whitelist rather than locking everyone out
+            return snapshot.whitelistedPlayers();
+        }
+    }
+
+    private boolean checkServer(String serverName) {
+        try {
+            // Try direct name-based check first
+            if (maintenanceByName != null) {
+                try {
+                    return (boolean) maintenanceByName.invoke(maintenanceAPI, serverName);
+                } catch (Throwable ignored) {
+                    // Ignore and continue to server-object checks
+                }
+            }
+
+            if (getServer == null) {
+                return false;
+            }
+
+            Object server = getServer.invoke(maintenanceAPI, serverName);
+            if (server == null) {
+                return false;
+            }
+
+            MethodHandle serverMaintenance = resolveServerMaintenanceHandle(server.getClass());
+            return serverMaintenance != null && (boolean) serverMaintenance.invoke(maintenanceAPI, server);
+        } catch (Throwable e) {
+            logger.warning("Failed to check maintenance status for server '" + serverName + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    private MethodHandle resolveServerMaintenanceHandle(Class<?> serverClass) {
+        if (maintenanceByServer != null && maintenanceByServer.type().parameterType(1).isAssignableFrom(serverClass)) {
+            return maintenanceByServer;
+        }
+
+        for (Method method : maintenanceAPI.getClass().getMethods()) {
+            if (!method.getName().equals("isMaintenance") || method.getParameterCount() != 1) {
+                continue;
+            }
+
+            if (method.getParameterTypes()[0].isAssignableFrom(serverClass)) {
+                maintenanceByServer = unreflect(method);
+                return maintenanceByServer;
+            }
+        }
+
+        return null;
+    }
+
+    // Listens for the Maintenance plugin's change events where its API offers them; polling covers the rest.
+    private void subscribeToChanges() {
+        try {
+            Object eventManager = maintenanceAPI.getClass().getMethod("getEventManager").invoke(maintenanceAPI);
+            Method registerListener = null;
+            for (Method method : eventManager.getClass().getMethods()) {
+                if (method.getName().equals("registerListener") && method.getParameterCount() == 2) {
+                    registerListener = method;
+                    break;
+                }
+            }
+
+            if (registerListener == null) {
+                warnPolling("the event manager has no registerListener method");
+                return;
+            }
+
+            Class<?> listenerType = registerListener.getParameterTypes()[0];
+            if (!listenerType.isInterface()) {
+                warnPolling("listener type " + listenerType.getName() + " is not an interface");
+                return;
+            }
+
+            Object listener = Proxy.newProxyInstance(listenerType.getClassLoader(), new Class<?>[]{listenerType},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "VelocityLimboHandler maintenance listener";
+                        default -> {
+                            refresh();
+                            yield null;
+                        }
+                    });
+
+            int subscribed = 0;
+            for (String eventName : changeEvents) {
+                try {
+                    Class<?> eventClass = Class.forName(eventName, false, maintenanceAPI.getClass().getClassLoader());
+                    registerListener.invoke(eventManager, listener, eventClass);
+                    subscribed++;
+                } catch (ClassNotFoundException ignored) {
+                    // Older Maintenance versions don't have every event
+                }
+            }
+
+            if (subscribed == 0) {
+                warnPolling("none of its change events were found");
+            }
+        } catch (Exception e) {
+            Throwable cause = e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+            warnPolling(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+        }
+    }
+
+    private void warnPolling(String reason) {
+        logger.warning("Couldn't subscribe to Maintenance change events (" + reason + "), so maintenance changes are "
+                + "only picked up every maintenance-refresh-interval");
+    }
+
+    private static MethodHandle findHandle(Class<?> targetClass, String methodName, Class<?>... paramTypes) {
+        try {
+            return unreflect(targetClass.getMethod(methodName, paramTypes));
+        } catch (NoSuchMethodException ignored) {
+            return null;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException ignored) {
+            // Non-public implementation class, so go through a public interface declaring the same method
+        }
+
+        for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getSuperclass()) {
+            for (Class<?> declaringInterface : type.getInterfaces()) {
+                try {
+                    Method interfaceMethod = declaringInterface.getMethod(method.getName(), method.getParameterTypes());
+                    return MethodHandles.publicLookup().unreflect(interfaceMethod);
+                } catch (NoSuchMethodException | IllegalAccessException ignored) {
+                    // Try the next interface
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.akselglyholt.velocityLimboHandler.misc;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.function.IntSupplier;
+
+/**
+ * A message from messages.yml, parsed by MiniMessage once when the config is loaded.
+ * <p>
+ * Placeholders such as {@code [queue-position]} are filled in on the parsed component when the message is sent, so
+ * sending a message never parses MiniMessage again. Messages without placeholders hand out the same component to
+ * every player.
+ */
+public final class MessageTemplate {
+    public static final String QUEUE_POSITION = "[queue-position]";
+
+    private static final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private static final MessageTemplate EMPTY = new MessageTemplate(Component.empty(), false);
+
+    private final Component component;
+    private final boolean hasQueuePosition;
+
+    private MessageTemplate(Component component, boolean hasQueuePosition) {
+        this.component = component;
+        this.hasQueuePosition = hasQueuePosition;
+    }
+
+    public static MessageTemplate compile(String message) {
+        if (message == null || message.isEmpty()) {
+            return EMPTY;
+        }
+
+        return new MessageTemplate(miniMessage.deserialize(message), message.contains(QUEUE_POSITION));
+    }
+
+    public boolean hasQueuePosition() {
+        return hasQueuePosition;
+    }
+
+    public Component render(int queuePosition) {
+        if (!hasQueuePosition) {
+            return component;
+        }
+
+        return component.replaceText(TextReplacementConfig.builder()
+                .matchLiteral(QUEUE_POSITION)
+                .replacement(Integer.toString(queuePosition))
+                .build());
+    }
+
+    /**
+     * Like {@link #render(int)}, but only looks the position up if the message actually shows it.
+     */
+    public Component render(IntSupplier queuePosition) {
+        return hasQueuePosition ? render(queuePosition.getAsInt()) : component;
+    }
+}
@@ -0,0 +1,251 @@
+package com.akselglyholt.velocityLimboHandler.misc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Minimal client for the Redis protocol (RESP), enough for the shared queue and rate limiter.
+ * <p>
+ * Commands are sent as pipelines: every command of a batch is written before any reply is read, so a batch costs
+ * one round trip. The connection is opened lazily and dropped on any I/O error. After such an error calls fail straight
+ * away for a few seconds instead of each waiting out the connect or read timeout again, so callers reach their local
+ * fallback quickly while Redis is unreachable.
+ * Replies come back as {@link String} (simple and bulk strings, null for nil), {@link Long}, {@link List} or
+ * {@link RespException} for error replies.
+ * <p>
+ * Reconnect attempts call in from virtual threads, so the connection is guarded by a {@link ReentrantLock} rather than
+ * a monitor, which would pin the carrier thread for the whole round trip.
+ */
+public final class RespClient implements AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int READ_TIMEOUT_MILLIS = 2000;
+    private static final long FAILURE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String host;
+    private final int port;
+    private final String password;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private volatile long retryAtNanos = System.nanoTime();
+    private String lastFailure;
+
+    public static final class RespException extends IOException {
+        public RespException(String message) {
+            super(message);
+        }
+    }
+
+    public RespClient(String host, int port, String password) {
+        this.host = host;
+        this.port = port;
+        this.password = password == null || password.isEmpty() ? null : password;
+    }
+
+    public Object command(String... args) throws IOException {
+        Object reply = pipeline(Collections.singletonList(args)).get(0);
+        if (reply instanceof RespException e) {
+            throw e;
+        }
+
+        return reply;
+    }
+
+    /**
+     * Whether calls currently fail straight away because of a recent connection error. Doesn't take the lock, so
+     * callers with a local fallback can skip waiting behind a call that is still timing out.
+     */
+    public boolean isUnavailable() {
+        return retryAtNanos - System.nanoTime() > 0;
+    }
+
+    /**
+     * Sends all commands in one write and reads their replies in order. Error replies are returned in place
+     * rather than thrown, so one failing command doesn't hide the replies of the others.
+     */
+    public List<Object> pipeline(List<String[]> commands) throws IOException {
+        if (commands.isEmpty()) {
+            return List.of();
+        }
+
+        lock.lock();
+        try {
+            if (socket == null && isUnavailable()) {
+                throw new IOException("Redis at " + host + ":" + port + " is unreachable (" + lastFailure
+                        + "), retrying shortly");
+            }
+
+            return exchange(commands);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            disconnect();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Object> exchange(List<String[]> commands) throws IOException {
+        try {
+            ensureConnected();
+            for (String[] command : commands) {
+                writeCommand(command);
+            }
+            out.flush();
+
+            List<Object> replies = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                replies.add(readReply());
+            }
+
+            return replies;
+        } catch (IOException e) {
+            if (!(e instanceof RespException)) {
+                disconnect();
+                retryAtNanos = System.nanoTime() + FAILURE_COOLDOWN_NANOS;
+                lastFailure = e.getMessage();
+            }
+            throw e;
+        }
+    }
+
+    private void ensureConnected() throws IOException {
+        if (socket != null) {
+            return;
+        }
+
+        Socket newSocket = new Socket();
+        try {
+            newSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            newSocket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            newSocket.setTcpNoDelay(true);
+            socket = newSocket;
+            in = new BufferedInputStream(newSocket.getInputStream());
+            out = new BufferedOutputStream(newSocket.getOutputStream());
+        } catch (IOException e) {
+            newSocket.close();
+            throw e;
+        }
+
+        if (password != null) {
+            writeCommand(new String[]{"AUTH", password});
+            out.flush();
+            if (readReply() instanceof RespException e) {
+                disconnect();
+                throw e;
+            }
+        }
+    }
+
+    private void disconnect() {
+        if (socket == null) {
+            return;
+        }
+
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already broken
+        }
+
+        socket = null;
+        in = null;
+        out = null;
+    }
+
+    private void writeCommand(String[] command) throws IOException {
+        writeLine("*" + command.length);
+        for (String arg : command) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            writeLine("$" + bytes.length);
+            out.write(bytes);
+            out.write('\r');
+            out.write('\n');
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.US_ASCII));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private Object readReply() throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            throw new EOFException("Connection closed by server");
+        }
+
+        String line = readLine();
+        return switch (type) {
+            case '+' -> line;
+            case '-' -> new RespException(line);
+            case ':' -> Long.parseLong(line);
+            case '$' -> readBulk(Integer.parseInt(line));
+            case '*' -> {
+                int count = Integer.parseInt(line);
+                if (count < 0) {
+                    yield null;
+                }
+
+                List<Object> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(readReply());
+                }
+                yield items;
+            }
+            default -> throw new IOException("Unexpected reply type: " + (char) type);
+        };
+    }
+
+    private String readBulk(int length) throws IOException {
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Connection closed by server");
+        }
+
+        readLine();
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException("Connection closed by server");
+            }
+            line.append((char) b);
+        }
+
+        if (in.read() != '\n') {
+            throw new IOException("Malformed reply line");
+        }
+
+        return line.toString();
+    }
+}
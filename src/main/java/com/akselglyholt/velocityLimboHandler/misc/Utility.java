@@ -1,7 +1,6 @@
 package com.akselglyholt.velocityLimboHandler.misc;
 
 import com.akselglyholt.velocityLimboHandler.VelocityLimboHandler;
-import com.akselglyholt.velocityLimboHandler.misc.MessageFormatter;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import dev.dejvokep.boostedyaml.route.Route;
@@ -10,21 +9,20 @@ import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Method;
-import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class Utility {
     private static final MiniMessage miniMessage = MiniMessage.miniMessage();
-    private static final String welcomeMsg = VelocityLimboHandler.getMessageConfig().getString(Route.from("welcomeMessage"));
-    private static final Map<Class<?>, Method> IS_MAINTENANCE_NO_ARG_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, Method> IS_MAINTENANCE_STRING_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, Method> GET_SERVER_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, Method> IS_MAINTENANCE_SERVER_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, Method> GET_SETTINGS_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, Method> GET_WHITELISTED_PLAYERS_CACHE = new ConcurrentHashMap<>();
+    private static final Component AFK_MESSAGE = miniMessage.deserialize(
+            "<yellow>⏳ You were inactive for too long and moved to Limbo.</yellow>\n" +
+                    "<gray>You will be reconnected when you interact with the game.</gray>");
+    private static final Component SERVER_RESTART_MESSAGE = miniMessage.deserialize(
+            "<red>🔄 The server is restarting, so you have been moved to Limbo.</red>\n" +
+                    "<gray>You will be reconnected automatically when the server is back.</gray>");
+    private static final Component CONNECTION_ISSUE_MESSAGE = miniMessage.deserialize(
+            "<dark_red>⚠ You had connection issues and were placed in Limbo.</dark_red>\n" +
+                    "<gray>Try reconnecting or wait for a stable connection.</gray>");
+    private static volatile MessageTemplate welcomeMessage = compileWelcomeMessage();
 
     // Returns whether the names of the servers match.
     public static boolean doServerNamesMatch(@NotNull RegisteredServer var0, @NotNull RegisteredServer var1) {
@@ -36,21 +34,24 @@ public class Utility {
         if (reason == null) reason = "unknown";
 
         Component message = switch (reason.toLowerCase()) {
-            case "afk" ->
-                    miniMessage.deserialize("<yellow>⏳ You were inactive for too long and moved to Limbo.</yellow>\n" +
-                            "<gray>You will be reconnected when you interact with the game.</gray>");
-            case "server-restart" ->
-                    miniMessage.deserialize("<red>🔄 The server is restarting, so you have been moved to Limbo.</red>\n" +
-                            "<gray>You will be reconnected automatically when the server is back.</gray>");
-            case "connection-issue" ->
-                    miniMessage.deserialize("<dark_red>⚠ You had connection issues and were placed in Limbo.</dark_red>\n" +
-                            "<gray>Try reconnecting or wait for a stable connection.</gray>");
-            default -> miniMessage.deserialize(MessageFormatter.formatMessage(welcomeMsg, player));
+            case "afk" -> AFK_MESSAGE;
+            case "server-restart" -> SERVER_RESTART_MESSAGE;
+            case "connection-issue" -> CONNECTION_ISSUE_MESSAGE;
+            default -> welcomeMessage.render(() -> VelocityLimboHandler.getPlayerManager().getQueuePosition(player));
         };
 
         player.sendMessage(message);
     }
 
+    // Re-reads the welcome message after messages.yml was reloaded
+    public static void reloadMessages() {
+        welcomeMessage = compileWelcomeMessage();
+    }
+
+    private static MessageTemplate compileWelcomeMessage() {
+        return MessageTemplate.compile(VelocityLimboHandler.getMessageConfig().getString(Route.from("welcomeMessage")));
+    }
+
 
     public static @Nullable RegisteredServer getServerByName(String serverName) {
         Optional<RegisteredServer> optionalServer = VelocityLimboHandler.getProxyServer().getServer(serverName);
@@ -68,37 +69,6 @@ public class Utility {
         VelocityLimboHandler.getLogger().info(message);
     }
 
-    private static Method getCachedMethod(Map<Class<?>, Method> cache, Class<?> targetClass, String methodName, Class<?>... paramTypes) {
-        return cache.computeIfAbsent(targetClass, key -> {
-            try {
-                return key.getMethod(methodName, paramTypes);
-            } catch (NoSuchMethodException ignored) {
-                return null;
-            }
-        });
-    }
-
-    private static Method resolveServerMaintenanceMethod(Class<?> apiClass, Class<?> serverClass) {
-        Method cached = IS_MAINTENANCE_SERVER_CACHE.get(apiClass);
-        if (cached != null && cached.getParameterTypes()[0].isAssignableFrom(serverClass)) {
-            return cached;
-        }
-
-        for (Method method : apiClass.getMethods()) {
-            if (!method.getName().equals("isMaintenance") || method.getParameterCount() != 1) {
-                continue;
-            }
-
-            Class<?> paramType = method.getParameterTypes()[0];
-            if (paramType.isAssignableFrom(serverClass)) {
-                IS_MAINTENANCE_SERVER_CACHE.put(apiClass, method);
-                return method;
-            }
-        }
-
-        return null;
-    }
-
     public static boolean hasMaintenance() {
         return VelocityLimboHandler.hasMaintenancePlugin();
     }
@@ -113,59 +83,9 @@ public class Utility {
             return false; // No maintenance plugin, assume not in maintenance
         }
 
-        try {
-            Object maintenanceAPI = VelocityLimboHandler.getMaintenanceAPI();
-            if (maintenanceAPI == null) {
-                return false;
-            }
-
-            Class<?> apiClass = maintenanceAPI.getClass();
-
-            // First check if the entire proxy is in maintenance
-            Method globalMaintenanceMethod = getCachedMethod(IS_MAINTENANCE_NO_ARG_CACHE, apiClass, "isMaintenance");
-            if (globalMaintenanceMethod != null) {
-                try {
-                    boolean globalMaintenance = (boolean) globalMaintenanceMethod.invoke(maintenanceAPI);
-                    if (globalMaintenance) {
-                        return true;
-                    }
-                } catch (Exception ignored) {
-                    // Ignore and continue to server-specific checks
-                }
-            }
-
-            // Try direct name-based check first
-            Method stringMaintenanceMethod = getCachedMethod(IS_MAINTENANCE_STRING_CACHE, apiClass, "isMaintenance", String.class);
-            if (stringMaintenanceMethod != null) {
-                try {
-                    return (boolean) stringMaintenanceMethod.invoke(maintenanceAPI, serverName);
-                } catch (Exception ignored) {
-                    // Ignore and continue to server-object checks
-                }
-            }
-
-            // Try server-object based check
-            Method getServerMethod = getCachedMethod(GET_SERVER_CACHE, apiClass, "getServer", String.class);
-            if (getServerMethod == null) {
-                return false;
-            }
-
-            Object server = getServerMethod.invoke(maintenanceAPI, serverName);
-            if (server == null) {
-                return false;
-            }
-
-            Method serverMaintenanceMethod = resolveServerMaintenanceMethod(apiClass, server.getClass());
-            if (serverMaintenanceMethod == null) {
-                return false;
-            }
-
-            return (boolean) serverMaintenanceMethod.invoke(maintenanceAPI, server);
-
-        } catch (Exception e) {
-            VelocityLimboHandler.getLogger().warning("Failed to check maintenance status for server '" + serverName + "': " + e.getMessage());
-            return false;
-        }
+        // Read from the last snapshot instead of asking the Maintenance API on every check
+        MaintenanceStatusCache statusCache = VelocityLimboHandler.getMaintenanceStatusCache();
+        return statusCache != null && statusCache.isInMaintenance(serverName);
     }
 
     /**
@@ -178,45 +98,7 @@ public class Utility {
             return false;
         }
 
-        try {
-            Object maintenanceAPI = VelocityLimboHandler.getMaintenanceAPI();
-            if (maintenanceAPI == null) {
-                return false;
-            }
-
-            Method getSettingsMethod = getCachedMethod(GET_SETTINGS_CACHE, maintenanceAPI.getClass(), "getSettings");
-            if (getSettingsMethod == null) {
-                return false;
-            }
-
-            Object settings = getSettingsMethod.invoke(maintenanceAPI);
-            if (settings == null) {
-                return false;
-            }
-
-            Method getWhitelistedPlayersMethod = getCachedMethod(
-                    GET_WHITELISTED_PLAYERS_CACHE,
-                    settings.getClass(),
-                    "getWhitelistedPlayers"
-            );
-            if (getWhitelistedPlayersMethod == null) {
-                return false;
-            }
-
-            Object whitelistMapObj = getWhitelistedPlayersMethod.invoke(settings);
-
-            if (!(whitelistMapObj instanceof Map<?, ?>)) {
-                return false;
-            }
-
-            @SuppressWarnings("unchecked")
-            Map<UUID, String> whitelistedPlayers = (Map<UUID, String>) whitelistMapObj;
-
-            return whitelistedPlayers.containsKey(player.getUniqueId());
-
-        } catch (Exception e) {
-            VelocityLimboHandler.getLogger().warning("Failed to check if player is whitelisted in Maintenance plugin: " + e.getMessage());
-            return false;
-        }
+        MaintenanceStatusCache statusCache = VelocityLimboHandler.getMaintenanceStatusCache();
+        return statusCache != null && statusCache.isWhitelisted(player.getUniqueId());
     }
 }
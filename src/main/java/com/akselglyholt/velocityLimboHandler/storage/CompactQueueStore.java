@@ -0,0 +1,258 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * {@link QueueStore} that keeps players as two {@code long}s in primitive arrays instead of boxed {@link UUID}s
+ * and map entries, so a tier holding tens of thousands of players costs a few dozen bytes per player and
+ * doesn't add objects for the garbage collector to trace.
+ * <p>
+ * Slots work like {@link IndexedTierQueue}: every player takes the next free slot, a Fenwick tree counts the live
+ * ones, and the buffer is compacted once the tail runs out of room. Players are looked up through an
+ * open-addressing table of slot numbers with linear probing, kept at most half full.
+ * <p>
+ * Not thread-safe; {@link ServerQueue} guards it with its lock.
+ */
+final class CompactQueueStore extends AbstractCollection<UUID> implements QueueStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] mostSignificantBits = new long[INITIAL_CAPACITY];
+    private long[] leastSignificantBits = new long[INITIAL_CAPACITY];
+    private long[] liveSlots = new long[bitSetLength(INITIAL_CAPACITY)];
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    // Slot number + 1 per table entry, 0 marks an empty entry
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+    private int nextSlot;
+    private int size;
+
+    @Override
+    public boolean add(UUID playerId) {
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        if (findEntry(most, least) >= 0) {
+            return false;
+        }
+
+        if (nextSlot == mostSignificantBits.length) {
+            compact();
+        }
+
+        int slot = nextSlot++;
+        mostSignificantBits[slot] = most;
+        leastSignificantBits[slot] = least;
+        liveSlots[slot >>> 6] |= 1L << slot;
+        update(slot, 1);
+        insertEntry(slot);
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object playerId) {
+        if (!(playerId instanceof UUID uuid)) {
+            return false;
+        }
+
+        int entry = findEntry(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (entry < 0) {
+            return false;
+        }
+
+        int slot = index[entry] - 1;
+        deleteEntry(entry);
+        clearSlot(slot);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object playerId) {
+        return playerId instanceof UUID uuid
+                && findEntry(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int rank(UUID playerId) {
+        int entry = findEntry(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+        if (entry < 0) {
+            return -1;
+        }
+
+        int rank = 0;
+        for (int i = index[entry]; i > 0; i -= i & -i) {
+            rank += tree[i];
+        }
+
+        return rank;
+    }
+
+    @Override
+    public Iterator<UUID> iterator() {
+        return new Iterator<>() {
+            private int cursor = advance(0);
+            private int lastReturned = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < nextSlot;
+            }
+
+            @Override
+            public UUID next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                lastReturned = cursor;
+                cursor = advance(cursor + 1);
+                return new UUID(mostSignificantBits[lastReturned], leastSignificantBits[lastReturned]);
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned < 0) {
+                    throw new IllegalStateException();
+                }
+
+                deleteEntry(findEntry(mostSignificantBits[lastReturned], leastSignificantBits[lastReturned]));
+                clearSlot(lastReturned);
+                lastReturned = -1;
+            }
+
+            private int advance(int from) {
+                int slot = from;
+                while (slot < nextSlot && !isLive(slot)) {
+                    slot++;
+                }
+
+                return slot;
+            }
+        };
+    }
+
+    private boolean isLive(int slot) {
+        return (liveSlots[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void clearSlot(int slot) {
+        liveSlots[slot >>> 6] &= ~(1L << slot);
+        update(slot, -1);
+        size--;
+    }
+
+    private void update(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Returns the table entry pointing at the player's slot, or -1 if the player isn't stored
+    private int findEntry(long most, long least) {
+        int mask = index.length - 1;
+        for (int entry = hash(most, least) & mask; ; entry = (entry + 1) & mask) {
+            int slotPlusOne = index[entry];
+            if (slotPlusOne == 0) {
+                return -1;
+            }
+
+            int slot = slotPlusOne - 1;
+            if (mostSignificantBits[slot] == most && leastSignificantBits[slot] == least) {
+                return entry;
+            }
+        }
+    }
+
+    private void insertEntry(int slot) {
+        int mask = index.length - 1;
+        int entry = hash(mostSignificantBits[slot], leastSignificantBits[slot]) & mask;
+        while (index[entry] != 0) {
+            entry = (entry + 1) & mask;
+        }
+
+        index[entry] = slot + 1;
+    }
+
+    // Backward-shift deletion, so lookups never have to skip over tombstones
+    private void deleteEntry(int entry) {
+        int mask = index.length - 1;
+        int hole = entry;
+        for (int next = (entry + 1) & mask; index[next] != 0; next = (next + 1) & mask) {
+            int slot = index[next] - 1;
+            int home = hash(mostSignificantBits[slot], leastSignificantBits[slot]) & mask;
+            // Move the entry into the hole unless its home lies between the hole and its current position
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                index[hole] = index[next];
+                hole = next;
+            }
+        }
+
+        index[hole] = 0;
+    }
+
+    // Moves live entries to the front and sizes the arrays so at least half of the slots are free again.
+    private void compact() {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+
+        long[] compactedMost = new long[capacity];
+        long[] compactedLeast = new long[capacity];
+        int slot = 0;
+        for (int i = 0; i < nextSlot; i++) {
+            if (!isLive(i)) {
+                continue;
+            }
+
+            compactedMost[slot] = mostSignificantBits[i];
+            compactedLeast[slot] = leastSignificantBits[i];
+            slot++;
+        }
+
+        mostSignificantBits = compactedMost;
+        leastSignificantBits = compactedLeast;
+        nextSlot = size;
+
+        liveSlots = new long[bitSetLength(capacity)];
+        for (int i = 0; i < size; i++) {
+            liveSlots[i >>> 6] |= 1L << i;
+        }
+
+        // Linear-time Fenwick construction: every live slot counts once.
+        int[] rebuilt = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= size) {
+                rebuilt[i] += 1;
+            }
+
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+        tree = rebuilt;
+
+        // Slots moved, so the lookup table is rebuilt at twice the slot capacity
+        index = new int[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            insertEntry(i);
+        }
+    }
+
+    private static int hash(long most, long least) {
+        long mixed = (most ^ Long.rotateLeft(least, 32)) * HASH_MULTIPLIER;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static int bitSetLength(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+}
@@ -0,0 +1,31 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Default backend for a single proxy: its own queues are the whole queue, so every candidate is admissible.
+ */
+public final class InMemoryQueueBackend implements QueueBackend {
+
+    @Override
+    public void enqueue(String serverName, UUID playerId, QueueTier tier) {
+    }
+
+    @Override
+    public void remove(String serverName, UUID playerId) {
+    }
+
+    @Override
+    public List<UUID> admissible(String serverName, List<UUID> candidates, int limit) {
+        return candidates.size() <= limit ? candidates : candidates.subList(0, limit);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
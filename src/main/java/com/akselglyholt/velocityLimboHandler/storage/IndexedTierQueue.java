@@ -0,0 +1,174 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.util.AbstractCollection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Insertion-ordered queue for a single {@link QueueTier} that can answer "how many players are ahead of me"
+ * in O(log n).
+ * <p>
+ * Every enqueued player takes the next free slot, and a Fenwick tree over the slots counts the live entries,
+ * so removing a player only clears its slot. Slots are compacted once the tail runs out of room, which keeps
+ * both enqueue and remove amortized O(1) apart from the tree update.
+ * <p>
+ * Not thread-safe; {@link ServerQueue} guards it with its lock.
+ */
+final class IndexedTierQueue extends AbstractCollection<UUID> implements QueueStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<UUID, Integer> slotByPlayer = new HashMap<>();
+    private UUID[] slots = new UUID[INITIAL_CAPACITY];
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    private int nextSlot;
+
+    @Override
+    public boolean add(UUID playerId) {
+        if (slotByPlayer.containsKey(playerId)) {
+            return false;
+        }
+
+        if (nextSlot == slots.length) {
+            compact();
+        }
+
+        int slot = nextSlot++;
+        slots[slot] = playerId;
+        slotByPlayer.put(playerId, slot);
+        update(slot, 1);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object playerId) {
+        Integer slot = slotByPlayer.remove(playerId);
+        if (slot == null) {
+            return false;
+        }
+
+        clearSlot(slot);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object playerId) {
+        return slotByPlayer.containsKey(playerId);
+    }
+
+    @Override
+    public int size() {
+        return slotByPlayer.size();
+    }
+
+    @Override
+    public int rank(UUID playerId) {
+        Integer slot = slotByPlayer.get(playerId);
+        if (slot == null) {
+            return -1;
+        }
+
+        int rank = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            rank += tree[i];
+        }
+
+        return rank;
+    }
+
+    @Override
+    public Iterator<UUID> iterator() {
+        return new Iterator<>() {
+            private int cursor = advance(0);
+            private int lastReturned = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < nextSlot;
+            }
+
+            @Override
+            public UUID next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                lastReturned = cursor;
+                cursor = advance(cursor + 1);
+                return slots[lastReturned];
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned < 0) {
+                    throw new IllegalStateException();
+                }
+
+                slotByPlayer.remove(slots[lastReturned]);
+                clearSlot(lastReturned);
+                lastReturned = -1;
+            }
+
+            private int advance(int from) {
+                int slot = from;
+                while (slot < nextSlot && slots[slot] == null) {
+                    slot++;
+                }
+
+                return slot;
+            }
+        };
+    }
+
+    private void clearSlot(int slot) {
+        slots[slot] = null;
+        update(slot, -1);
+    }
+
+    private void update(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Moves live entries to the front and sizes the arrays so at least half of the slots are free again.
+    private void compact() {
+        int live = slotByPlayer.size();
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < live * 2) {
+            capacity <<= 1;
+        }
+
+        UUID[] compacted = new UUID[capacity];
+        int[] rebuilt = new int[capacity + 1];
+        int slot = 0;
+        for (int i = 0; i < nextSlot; i++) {
+            UUID playerId = slots[i];
+            if (playerId == null) {
+                continue;
+            }
+
+            compacted[slot] = playerId;
+            slotByPlayer.put(playerId, slot);
+            slot++;
+        }
+
+        // Linear-time Fenwick construction: every live slot counts once.
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= live) {
+                rebuilt[i] += 1;
+            }
+
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+
+        slots = compacted;
+        tree = rebuilt;
+        nextSlot = live;
+    }
+}
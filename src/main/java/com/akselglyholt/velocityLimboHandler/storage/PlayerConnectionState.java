@@ -1,5 +1,6 @@
 package com.akselglyholt.velocityLimboHandler.storage;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -59,6 +60,12 @@ final class PlayerConnectionState {
         playerConnectionIssues.remove(playerId);
     }
 
+    void collectTrackedPlayers(Collection<UUID> target) {
+        target.addAll(playerData.keySet());
+        target.addAll(connectingPlayers);
+        target.addAll(playerConnectionIssues.keySet());
+    }
+
     void pruneInactivePlayers(Predicate<UUID> inactiveOrMissing) {
         playerData.keySet().removeIf(inactiveOrMissing);
         connectingPlayers.removeIf(inactiveOrMissing);
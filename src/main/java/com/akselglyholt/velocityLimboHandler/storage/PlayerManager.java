@@ -1,37 +1,54 @@
 package com.akselglyholt.velocityLimboHandler.storage;
 
 import com.akselglyholt.velocityLimboHandler.VelocityLimboHandler;
-import com.akselglyholt.velocityLimboHandler.misc.MessageFormatter;
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.misc.MessageTemplate;
 import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import dev.dejvokep.boostedyaml.route.Route;
-import net.kyori.adventure.text.minimessage.MiniMessage;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 public class PlayerManager {
     public record QueuedPlayer(UUID uuid, String name) {
     }
 
     private final PlayerConnectionState connectionState = new PlayerConnectionState();
-    private final ReconnectQueueState reconnectQueueState = new ReconnectQueueState(this::removePlayerState, this::getActivePlayer);
-    private final MiniMessage miniMessage = MiniMessage.miniMessage();
-    private static String queuePositionMsg;
+    private final ReconnectQueueState reconnectQueueState = new ReconnectQueueState(this::removePlayerState, this::getActivePlayer, queueStoreFactory());
+    private final Deque<UUID> sweepBacklog = new ArrayDeque<>();
+    private static MessageTemplate queuePositionJoinMessage;
 
     public PlayerManager() {
         reloadMessages();
     }
 
+    // The store is picked once, when the plugin starts; changing queue-store needs a proxy restart
+    private static Supplier<QueueStore> queueStoreFactory() {
+        ConfigManager configManager = VelocityLimboHandler.getConfigManager();
+        if (configManager != null && "compact".equalsIgnoreCase(configManager.getQueueStore())) {
+            return CompactQueueStore::new;
+        }
+
+        return IndexedTierQueue::new;
+    }
+
     private boolean isAuthBlocked(Player player) {
         var authManager = VelocityLimboHandler.getAuthManager();
         return authManager != null && authManager.isAuthBlocked(player);
     }
 
     public void reloadMessages() {
-        queuePositionMsg = VelocityLimboHandler.getMessageConfig().getString(Route.from("queuePositionJoin"));
+        queuePositionJoinMessage = MessageTemplate.compile(VelocityLimboHandler.getMessageConfig().getString(Route.from("queuePositionJoin")));
     }
 
     public void addPlayer(Player player, RegisteredServer registeredServer) {
@@ -44,6 +61,12 @@ public class PlayerManager {
             return;
         }
 
+        // Back after a proxy restart: queue them for the server they were waiting for, in their old place
+        String reservedServerName = reconnectQueueState.claimReservation(playerId);
+        if (reservedServerName != null) {
+            registeredServer = VelocityLimboHandler.getProxyServer().getServer(reservedServerName).orElse(registeredServer);
+        }
+
         String serverName = registeredServer.getServerInfo().getName();
         connectionState.registerPlayer(playerId, serverName);
 
@@ -51,8 +74,7 @@ public class PlayerManager {
 
         if (VelocityLimboHandler.isQueueEnabled()) {
             reconnectQueueState.enqueue(player, registeredServer);
-            String formattedMessage = MessageFormatter.formatMessage(queuePositionMsg, player);
-            player.sendMessage(miniMessage.deserialize(formattedMessage));
+            player.sendMessage(queuePositionJoinMessage.render(() -> getQueuePosition(player)));
         }
     }
 
@@ -69,6 +91,15 @@ public class PlayerManager {
                 .orElse(VelocityLimboHandler.getDirectConnectServer());
     }
 
+    /**
+     * Same server as {@link #getPreviousServer(Player)}, by name only, so callers that just group players don't
+     * need a proxy lookup per player.
+     */
+    public String getPreviousServerName(Player player) {
+        return connectionState.getRegisteredServer(player.getUniqueId())
+                .orElseGet(() -> VelocityLimboHandler.getDirectConnectServer().getServerInfo().getName());
+    }
+
     public boolean isPlayerRegistered(Player player) {
         return connectionState.isRegistered(player.getUniqueId());
     }
@@ -85,6 +116,13 @@ public class PlayerManager {
         return reconnectQueueState.getNextQueuedPlayer(server);
     }
 
+    /**
+     * Returns up to {@code limit} players from the head of the server's queue that are not already connecting.
+     */
+    public List<Player> getNextQueuedPlayers(RegisteredServer server, int limit) {
+        return reconnectQueueState.getNextQueuedPlayers(server, limit, connectionState::isConnecting);
+    }
+
     public boolean hasQueuedPlayers(RegisteredServer server) {
         return reconnectQueueState.hasQueuedPlayers(server);
     }
@@ -94,6 +132,20 @@ public class PlayerManager {
         return reconnectQueueState.getQueuePosition(player.getUniqueId(), previousServer.getServerInfo().getName());
     }
 
+    /**
+     * Looks up the queue positions of several players waiting for the same server in one pass over its queue.
+     *
+     * @return positions by player id; players not queued for the server are left out
+     */
+    public Map<UUID, Integer> getQueuePositions(String serverName, Collection<Player> players) {
+        List<UUID> playerIds = new ArrayList<>(players.size());
+        for (Player player : players) {
+            playerIds.add(player.getUniqueId());
+        }
+
+        return reconnectQueueState.getQueuePositions(serverName, playerIds);
+    }
+
     public void addPlayerWithIssue(Player player, String issue) {
         connectionState.addConnectionIssue(player.getUniqueId(), issue);
     }
@@ -115,6 +167,36 @@ public class PlayerManager {
         connectionState.pruneInactivePlayers(this::isInactiveOrMissing);
     }
 
+    /**
+     * Checks at most {@code budget} tracked players and drops the ones that are no longer online. Once every tracked
+     * player has been visited, the next call starts a new pass over a fresh snapshot, so a full pass over the players
+     * is spread over several calls.
+     *
+     * @return how many stale players were removed
+     */
+    public synchronized int sweepInactivePlayers(int budget) {
+        if (sweepBacklog.isEmpty()) {
+            Set<UUID> trackedPlayers = new LinkedHashSet<>();
+            connectionState.collectTrackedPlayers(trackedPlayers);
+            reconnectQueueState.collectQueuedPlayerIds(trackedPlayers);
+            sweepBacklog.addAll(trackedPlayers);
+        }
+
+        int removed = 0;
+        for (int visited = 0; visited < budget && !sweepBacklog.isEmpty(); visited++) {
+            UUID playerId = sweepBacklog.poll();
+            if (!isInactiveOrMissing(playerId) || reconnectQueueState.isReserved(playerId)) {
+                continue;
+            }
+
+            reconnectQueueState.removePlayer(playerId);
+            removePlayerState(playerId);
+            removed++;
+        }
+
+        return removed;
+    }
+
     public int getQueuedServerCount() {
         pruneInactivePlayers();
         return reconnectQueueState.getQueuedServerCount();
@@ -138,6 +220,26 @@ public class PlayerManager {
         return VelocityLimboHandler.getPlayerManager().reconnectQueueState.findFirstMaintenanceAllowedPlayer(server);
     }
 
+    /**
+     * Restores the queues saved before the proxy restarted. Restored players keep their places for
+     * {@code graceMillis} while they reconnect.
+     */
+    public void restoreQueues(List<QueuePersistence.Entry> entries, long graceMillis) {
+        reconnectQueueState.restore(entries, graceMillis);
+    }
+
+    public void setQueuePersistence(QueuePersistence persistence) {
+        reconnectQueueState.setPersistence(persistence);
+    }
+
+    public void setQueueBackend(QueueBackend backend) {
+        reconnectQueueState.setBackend(backend);
+    }
+
+    public List<QueuePersistence.Entry> getQueueSnapshot() {
+        return reconnectQueueState.snapshotEntries();
+    }
+
     public boolean isPlayerConnecting(Player player) {
         return connectionState.isConnecting(player.getUniqueId());
     }
@@ -0,0 +1,35 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Decides which of this proxy's queued players may be reconnected, based on a queue that can be shared with other
+ * proxies. Every proxy still keeps its own {@link ServerQueue}s for its own players; the backend only adds the
+ * ordering across proxies.
+ */
+public interface QueueBackend {
+
+    /**
+     * Called when a player joins a server's queue or moves to another tier of it.
+     */
+    void enqueue(String serverName, UUID playerId, QueueTier tier);
+
+    void remove(String serverName, UUID playerId);
+
+    /**
+     * Filters this proxy's next players, given in local queue order, down to the ones that may be reconnected now.
+     * Players handed out are claimed: they stop holding a place in the shared queue while their attempt runs, and get
+     * their place back if they are passed in again because the attempt failed.
+     *
+     * @param limit how many players the server can take right now
+     */
+    List<UUID> admissible(String serverName, List<UUID> candidates, int limit);
+
+    /**
+     * Sends any updates that are still batched up.
+     */
+    void flush();
+
+    void close();
+}
@@ -0,0 +1,355 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the reconnect queues on disk so they survive a proxy restart.
+ * <p>
+ * Every enqueue and removal is appended to a journal, and the whole queue state is periodically written as a compact
+ * binary snapshot, after which a fresh journal is started. Both files carry a generation number, so on startup the
+ * snapshot is read and only the journals written after it are replayed on top.
+ * <p>
+ * Files are read into memory in one go rather than memory-mapped: restore replaces the snapshot and truncates the
+ * journal right after reading them, which fails on Windows while a mapping of the file is still alive.
+ */
+public final class QueuePersistence {
+    private static final int SNAPSHOT_MAGIC = 0x564C4851; // "VLHQ"
+    private static final int JOURNAL_MAGIC = 0x564C484A; // "VLHJ"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte OP_ENQUEUE = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final QueueTier[] TIERS = QueueTier.values();
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Path previousJournalFile;
+    private final Logger logger;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    // Guards the journal; a lock rather than a monitor because queue changes are also recorded from virtual threads
+    private final ReentrantLock journalLock = new ReentrantLock();
+
+    private DataOutputStream journal;
+    private long generation;
+
+    public record Entry(UUID playerId, String serverName, QueueTier tier) {
+    }
+
+    public QueuePersistence(Path dataDirectory, Logger logger) {
+        this.snapshotFile = dataDirectory.resolve("queue-snapshot.bin");
+        this.journalFile = dataDirectory.resolve("queue-journal.bin");
+        this.previousJournalFile = dataDirectory.resolve("queue-journal.previous.bin");
+        this.logger = logger;
+    }
+
+    /**
+     * Reads the last snapshot and replays the journals written after it, then starts a new generation so the
+     * restored state is the base for everything recorded from now on.
+     *
+     * @return the restored entries, in queue order for every server and tier
+     */
+    public List<Entry> restore() throws IOException {
+        Map<UUID, Entry> entries = new LinkedHashMap<>();
+
+        long snapshotGeneration = readSnapshot(entries);
+        long lastGeneration = snapshotGeneration;
+        lastGeneration = Math.max(lastGeneration, replayJournal(previousJournalFile, snapshotGeneration, entries));
+        lastGeneration = Math.max(lastGeneration, replayJournal(journalFile, snapshotGeneration, entries));
+
+        List<Entry> restored = new ArrayList<>(entries.values());
+        snapshotLock.lock();
+        try {
+            journalLock.lock();
+            try {
+                closeJournal();
+                generation = lastGeneration + 1;
+                writeSnapshotFile(restored, generation);
+                openJournal();
+            } finally {
+                journalLock.unlock();
+            }
+            Files.deleteIfExists(previousJournalFile);
+        } finally {
+            snapshotLock.unlock();
+        }
+
+        return restored;
+    }
+
+    public void recordEnqueue(UUID playerId, String serverName, QueueTier tier) {
+        journalLock.lock();
+        try {
+            if (journal == null) {
+                return;
+            }
+
+            journal.writeByte(OP_ENQUEUE);
+            journal.writeLong(playerId.getMostSignificantBits());
+            journal.writeLong(playerId.getLeastSignificantBits());
+            journal.writeByte(tier.ordinal());
+            writeString(journal, serverName);
+        } catch (IOException e) {
+            failJournal(e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    public void recordRemove(UUID playerId) {
+        journalLock.lock();
+        try {
+            if (journal == null) {
+                return;
+            }
+
+            journal.writeByte(OP_REMOVE);
+            journal.writeLong(playerId.getMostSignificantBits());
+            journal.writeLong(playerId.getLeastSignificantBits());
+        } catch (IOException e) {
+            failJournal(e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    public void flush() {
+        journalLock.lock();
+        try {
+            if (journal == null) {
+                return;
+            }
+
+            journal.flush();
+        } catch (IOException e) {
+            failJournal(e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of {@code state} and starts a new journal. The state is read while journal writes are held
+     * back, so every change is either part of the snapshot or recorded in the new journal.
+     */
+    public void writeSnapshot(Supplier<Collection<Entry>> state) throws IOException {
+        snapshotLock.lock();
+        try {
+            Collection<Entry> entries;
+            long snapshotGeneration;
+            journalLock.lock();
+            try {
+                entries = state.get();
+                closeJournal();
+                if (Files.exists(journalFile)) {
+                    Files.move(journalFile, previousJournalFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                generation++;
+                snapshotGeneration = generation;
+                openJournal();
+            } finally {
+                journalLock.unlock();
+            }
+
+            writeSnapshotFile(entries, snapshotGeneration);
+            Files.deleteIfExists(previousJournalFile);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Stops recording. Used on shutdown after the final snapshot, so the disconnects of a shutting down proxy don't
+     * empty the persisted queues.
+     */
+    public void close() {
+        journalLock.lock();
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            logger.warning("Failed to close the queue journal: " + e.getMessage());
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private long readSnapshot(Map<UUID, Entry> entries) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+
+        ByteBuffer buffer = read(snapshotFile);
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warning("Ignoring queue snapshot with an unknown format.");
+                return 0;
+            }
+
+            long snapshotGeneration = buffer.getLong();
+            String[] serverNames = new String[buffer.getInt()];
+            for (int i = 0; i < serverNames.length; i++) {
+                serverNames[i] = readString(buffer);
+            }
+
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+                String serverName = serverNames[buffer.getInt()];
+                entries.put(playerId, new Entry(playerId, serverName, TIERS[buffer.get()]));
+            }
+
+            return snapshotGeneration;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            logger.warning("Ignoring truncated queue snapshot.");
+            entries.clear();
+            return 0;
+        }
+    }
+
+    // Applies the journal's records if it belongs to the snapshot's generation or a later one
+    private long replayJournal(Path file, long minimumGeneration, Map<UUID, Entry> entries) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        ByteBuffer buffer = read(file);
+        long journalGeneration;
+        try {
+            if (buffer.getInt() != JOURNAL_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warning("Ignoring queue journal with an unknown format: " + file.getFileName());
+                return 0;
+            }
+
+            journalGeneration = buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            return 0;
+        }
+
+        if (journalGeneration < minimumGeneration) {
+            return journalGeneration;
+        }
+
+        try {
+            while (buffer.hasRemaining()) {
+                byte op = buffer.get();
+                UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+                if (op == OP_REMOVE) {
+                    entries.remove(playerId);
+                    continue;
+                }
+
+                QueueTier tier = TIERS[buffer.get()];
+                String serverName = readString(buffer);
+                Entry existing = entries.get(playerId);
+                // Same as ServerQueue: re-enqueueing into the same tier keeps the player's place
+                if (existing != null && existing.serverName().equals(serverName) && existing.tier() == tier) {
+                    continue;
+                }
+
+                entries.remove(playerId);
+                entries.put(playerId, new Entry(playerId, serverName, tier));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // The proxy stopped mid-write; everything before the partial record is still good
+        }
+
+        return journalGeneration;
+    }
+
+    private void writeSnapshotFile(Collection<Entry> entries, long snapshotGeneration) throws IOException {
+        Map<String, Integer> serverIndexes = new HashMap<>();
+        List<String> serverNames = new ArrayList<>();
+        for (Entry entry : entries) {
+            serverIndexes.computeIfAbsent(entry.serverName(), serverName -> {
+                serverNames.add(serverName);
+                return serverNames.size() - 1;
+            });
+        }
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(serverNames.size());
+            for (String serverName : serverNames) {
+                writeString(out, serverName);
+            }
+
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.playerId().getMostSignificantBits());
+                out.writeLong(entry.playerId().getLeastSignificantBits());
+                out.writeInt(serverIndexes.get(entry.serverName()));
+                out.writeByte(entry.tier().ordinal());
+            }
+        }
+
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void openJournal() throws IOException {
+        journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+        journal.writeInt(JOURNAL_MAGIC);
+        journal.writeInt(FORMAT_VERSION);
+        journal.writeLong(generation);
+        journal.flush();
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.close();
+        } finally {
+            journal = null;
+        }
+    }
+
+    // Journaling stops until the next snapshot opens a new journal
+    private void failJournal(IOException e) {
+        logger.warning("Failed to write the queue journal, changes are only kept until the next snapshot: " + e.getMessage());
+        try {
+            closeJournal();
+        } catch (IOException ignored) {
+            // Already failing
+        }
+    }
+
+    private static ByteBuffer read(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
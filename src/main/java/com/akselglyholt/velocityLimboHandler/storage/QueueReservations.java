@@ -0,0 +1,55 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the places of players restored from a queue snapshot until they are back on the proxy. While the grace
+ * period lasts, their entries aren't treated as stale even though the players are offline.
+ */
+final class QueueReservations {
+    private final Map<UUID, String> serverByPlayer = new ConcurrentHashMap<>();
+    private volatile long expiresAtNanos;
+
+    void reserve(UUID playerId, String serverName) {
+        serverByPlayer.put(playerId, serverName);
+    }
+
+    void expireAfter(long graceMillis) {
+        expiresAtNanos = System.nanoTime() + graceMillis * 1_000_000L;
+    }
+
+    boolean isReserved(UUID playerId) {
+        return !expireIfDue() && serverByPlayer.containsKey(playerId);
+    }
+
+    /**
+     * @return the server the player was queued for before the restart, or null if the player has no reservation
+     */
+    String claim(UUID playerId) {
+        if (expireIfDue()) {
+            return null;
+        }
+
+        return serverByPlayer.remove(playerId);
+    }
+
+    void release(UUID playerId) {
+        serverByPlayer.remove(playerId);
+    }
+
+    // Returns true once the grace period is over, dropping whatever wasn't claimed
+    private boolean expireIfDue() {
+        if (serverByPlayer.isEmpty()) {
+            return true;
+        }
+
+        if (System.nanoTime() - expiresAtNanos >= 0) {
+            serverByPlayer.clear();
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Insertion-ordered set of queued players backing one {@link QueueTier} of a {@link ServerQueue}.
+ * <p>
+ * {@link IndexedTierQueue} is the default. {@link CompactQueueStore} keeps the same behavior in primitive arrays
+ * for networks that park very large numbers of players at once. Implementations don't need to be thread-safe;
+ * {@link ServerQueue} guards them with its lock.
+ */
+interface QueueStore extends Collection<UUID> {
+
+    /**
+     * @return the 1-based position of the player within this store, or -1 if the player is not in it
+     */
+    int rank(UUID playerId);
+}
@@ -4,44 +4,144 @@ import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 final class ReconnectQueueState {
-    private static final long POSITION_CACHE_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
-
     private final Map<String, ServerQueue> reconnectQueues = new ConcurrentHashMap<>();
-    private final Map<String, QueuePositionCacheEntry> queuePositionCache = new ConcurrentHashMap<>();
+    // A player is only ever queued for one server; this points at it so removal only touches that queue
+    private final Map<UUID, String> queuedServerByPlayer = new ConcurrentHashMap<>();
     private final Consumer<UUID> staleEntryRemover;
     private final Function<UUID, Player> activePlayerResolver;
+    private final Supplier<QueueStore> storeFactory;
+    private final QueueReservations reservations = new QueueReservations();
+    // Restored players that aren't in the shared queue yet; they are only published once they are back online
+    private final Set<UUID> unpublishedRestores = ConcurrentHashMap.newKeySet();
+    private volatile QueuePersistence persistence;
+    private volatile QueueBackend backend = new InMemoryQueueBackend();
 
     ReconnectQueueState(Consumer<UUID> staleEntryRemover, Function<UUID, Player> activePlayerResolver) {
+        this(staleEntryRemover, activePlayerResolver, IndexedTierQueue::new);
+    }
+
+    ReconnectQueueState(Consumer<UUID> staleEntryRemover, Function<UUID, Player> activePlayerResolver,
+                        Supplier<QueueStore> storeFactory) {
         this.staleEntryRemover = staleEntryRemover;
         this.activePlayerResolver = activePlayerResolver;
+        this.storeFactory = storeFactory;
     }
 
     void enqueue(Player player, RegisteredServer server) {
         String serverName = server.getServerInfo().getName();
         UUID playerId = player.getUniqueId();
 
-        ServerQueue serverQueue = getOrCreateServerQueue(serverName);
-        serverQueue.enqueue(playerId, getTier(player, serverName));
-        invalidatePositionCache(serverName);
+        QueueTier tier = getTier(player, serverName);
+
+        queuedServerByPlayer.compute(playerId, (id, previousServerName) -> {
+            if (previousServerName != null && !previousServerName.equals(serverName)) {
+                ServerQueue previousQueue = getServerQueue(previousServerName);
+                if (previousQueue != null && previousQueue.remove(id)) {
+                    backend.remove(previousServerName, id);
+                }
+            }
+
+            boolean changed = getOrCreateServerQueue(serverName).enqueue(id, tier);
+            if (unpublishedRestores.remove(id) || changed) {
+                backend.enqueue(serverName, id, tier);
+            }
+            return serverName;
+        });
+
+        // Journaled outside compute, so a journal write never holds the map's bin lock
+        recordEnqueue(playerId, serverName, tier);
     }
 
     void removePlayer(UUID playerId) {
+        reservations.release(playerId);
+        unpublishedRestores.remove(playerId);
+        boolean[] removed = new boolean[1];
+        queuedServerByPlayer.computeIfPresent(playerId, (id, serverName) -> {
+            ServerQueue serverQueue = getServerQueue(serverName);
+            if (serverQueue != null && serverQueue.remove(id)) {
+                backend.remove(serverName, id);
+            }
+
+            removed[0] = true;
+            return null;
+        });
+
+        if (removed[0]) {
+            recordRemove(playerId);
+        }
+    }
+
+    void setPersistence(QueuePersistence persistence) {
+        this.persistence = persistence;
+    }
+
+    void setBackend(QueueBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Puts players restored from a snapshot back in their places. They are offline at this point, so their places
+     * are only held for {@code graceMillis}; players that come back in time keep them. The shared queue only learns
+     * about them once they are back, so offline players can't hold up other proxies.
+     */
+    void restore(List<QueuePersistence.Entry> entries, long graceMillis) {
+        reservations.expireAfter(graceMillis);
+        for (QueuePersistence.Entry entry : entries) {
+            reservations.reserve(entry.playerId(), entry.serverName());
+            queuedServerByPlayer.compute(entry.playerId(), (id, previousServerName) -> {
+                if (previousServerName != null) {
+                    return previousServerName;
+                }
+
+                getOrCreateServerQueue(entry.serverName()).enqueue(id, entry.tier());
+                unpublishedRestores.add(id);
+                return entry.serverName();
+            });
+        }
+    }
+
+    /**
+     * @return the server the player was queued for before the proxy restarted, or null if nothing was held for them
+     */
+    String claimReservation(UUID playerId) {
+        return reservations.claim(playerId);
+    }
+
+    boolean isReserved(UUID playerId) {
+        return reservations.isReserved(playerId);
+    }
+
+    // Every queued player in queue order, as written to a persistent snapshot
+    List<QueuePersistence.Entry> snapshotEntries() {
+        List<QueuePersistence.Entry> entries = new ArrayList<>();
+        QueueTier[] tiers = QueueTier.values();
         reconnectQueues.forEach((serverName, serverQueue) -> {
-            if (serverQueue.remove(playerId)) {
-                invalidatePositionCache(serverName);
+            List<Queue<UUID>> orderedQueues = serverQueue.orderedQueues();
+            for (int i = 0; i < tiers.length; i++) {
+                for (UUID playerId : orderedQueues.get(i)) {
+                    entries.add(new QueuePersistence.Entry(playerId, serverName, tiers[i]));
+                }
             }
         });
+
+        return entries;
     }
 
     Player getNextQueuedPlayer(RegisteredServer server) {
@@ -51,17 +151,49 @@ final class ReconnectQueueState {
             return null;
         }
 
-        long beforeVersion = serverQueue.version();
-        Player nextPlayer = serverQueue.getNextActivePlayer(this::getActivePlayer, staleEntryRemover);
-        if (serverQueue.version() != beforeVersion) {
-            invalidatePositionCache(serverName);
+        return serverQueue.getNextActivePlayer(this::getActivePlayer, indexedStaleEntryRemover(serverName, serverQueue));
+    }
+
+    List<Player> getNextQueuedPlayers(RegisteredServer server, int limit, Predicate<UUID> skip) {
+        String serverName = server.getServerInfo().getName();
+        ServerQueue serverQueue = getServerQueue(serverName);
+        if (serverQueue == null || limit <= 0) {
+            return List.of();
+        }
+
+        List<Player> candidates = serverQueue.getNextActivePlayers(limit, this::getActivePlayer, indexedStaleEntryRemover(serverName, serverQueue), skip);
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        // With a shared queue, only players that are also at the front network-wide may go
+        List<UUID> candidateIds = new ArrayList<>(candidates.size());
+        for (Player candidate : candidates) {
+            candidateIds.add(candidate.getUniqueId());
         }
 
-        return nextPlayer;
+        Set<UUID> admissible = new HashSet<>(backend.admissible(serverName, candidateIds, limit));
+        if (admissible.size() == candidates.size()) {
+            return candidates;
+        }
+
+        List<Player> admitted = new ArrayList<>(admissible.size());
+        for (Player candidate : candidates) {
+            if (admissible.contains(candidate.getUniqueId())) {
+                admitted.add(candidate);
+            }
+        }
+
+        return admitted;
     }
 
+    /**
+     * Lock-free check used on every server switch. Entries of players that went offline still count until they are
+     * cleaned up by a drain, a prune or the inactive player sweep.
+     */
     boolean hasQueuedPlayers(RegisteredServer server) {
-        return getNextQueuedPlayer(server) != null;
+        ServerQueue serverQueue = getServerQueue(server.getServerInfo().getName());
+        return serverQueue != null && !serverQueue.isEmpty();
     }
 
     int getQueuePosition(UUID targetId, String serverName) {
@@ -70,15 +202,25 @@ final class ReconnectQueueState {
             return -1;
         }
 
-        return getOrBuildQueuePositions(serverName, serverQueue).getOrDefault(targetId, -1);
+        return serverQueue.getQueuePosition(targetId);
+    }
+
+    Map<UUID, Integer> getQueuePositions(String serverName, Collection<UUID> playerIds) {
+        ServerQueue serverQueue = getServerQueue(serverName);
+        if (serverQueue == null) {
+            return Map.of();
+        }
+
+        return serverQueue.getQueuePositions(playerIds);
+    }
+
+    void collectQueuedPlayerIds(Collection<UUID> target) {
+        target.addAll(queuedServerByPlayer.keySet());
     }
 
     void pruneInactivePlayers() {
-        reconnectQueues.forEach((serverName, serverQueue) -> {
-            if (serverQueue.pruneInactivePlayers(this::getActivePlayer, staleEntryRemover)) {
-                invalidatePositionCache(serverName);
-            }
-        });
+        reconnectQueues.forEach((serverName, serverQueue) ->
+                serverQueue.pruneInactivePlayers(this::getActivePlayer, indexedStaleEntryRemover(serverName, serverQueue)));
     }
 
     int getQueuedServerCount() {
@@ -111,13 +253,7 @@ final class ReconnectQueueState {
             return List.of();
         }
 
-        long beforeVersion = serverQueue.version();
-        List<PlayerManager.QueuedPlayer> queuedPlayers = serverQueue.getActiveQueuedPlayers(this::getActivePlayer, staleEntryRemover);
-        if (serverQueue.version() != beforeVersion) {
-            invalidatePositionCache(serverName);
-        }
-
-        return queuedPlayers;
+        return serverQueue.getActiveQueuedPlayers(this::getActivePlayer, indexedStaleEntryRemover(serverName, serverQueue));
     }
 
     Player findFirstMaintenanceAllowedPlayer(RegisteredServer server) {
@@ -127,20 +263,18 @@ final class ReconnectQueueState {
             return null;
         }
 
-        long beforeVersion = serverQueue.version();
-        Player maintenanceAllowed = serverQueue.findFirstActiveMatching(
+        return serverQueue.findFirstMaintenanceEligible(
                 this::getActivePlayer,
-                staleEntryRemover,
-                player -> player.hasPermission("maintenance.admin")
-                        || player.hasPermission("maintenance.bypass")
-                        || player.hasPermission("maintenance.singleserver.bypass." + serverName)
-                        || Utility.playerMaintenanceWhitelisted(player)
+                indexedStaleEntryRemover(serverName, serverQueue),
+                player -> isMaintenanceEligible(player, serverName)
         );
-        if (serverQueue.version() != beforeVersion) {
-            invalidatePositionCache(serverName);
-        }
+    }
 
-        return maintenanceAllowed;
+    private boolean isMaintenanceEligible(Player player, String serverName) {
+        return player.hasPermission("maintenance.admin")
+                || player.hasPermission("maintenance.bypass")
+                || player.hasPermission("maintenance.singleserver.bypass." + serverName)
+                || Utility.playerMaintenanceWhitelisted(player);
     }
 
     private QueueTier getTier(Player player, String serverName) {
@@ -159,41 +293,52 @@ final class ReconnectQueueState {
         return QueueTier.NORMAL;
     }
 
-    private ServerQueue getServerQueue(String serverName) {
-        return reconnectQueues.get(serverName);
-    }
-
-    private ServerQueue getOrCreateServerQueue(String serverName) {
-        return reconnectQueues.computeIfAbsent(serverName, key -> new ServerQueue());
+    // Stale entries are already gone from the queue by the time this runs. Only drop the index entry if the player
+    // wasn't queued again in the meantime.
+    private Consumer<UUID> indexedStaleEntryRemover(String serverName, ServerQueue serverQueue) {
+        return playerId -> {
+            boolean[] removed = new boolean[1];
+            queuedServerByPlayer.computeIfPresent(playerId, (id, queuedServerName) -> {
+                if (!queuedServerName.equals(serverName) || serverQueue.contains(id)) {
+                    return queuedServerName;
+                }
+
+                backend.remove(serverName, id);
+                unpublishedRestores.remove(id);
+                removed[0] = true;
+                return null;
+            });
+
+            if (removed[0]) {
+                recordRemove(playerId);
+            }
+            staleEntryRemover.accept(playerId);
+        };
     }
 
-    private Player getActivePlayer(UUID playerId) {
-        return activePlayerResolver.apply(playerId);
+    private void recordEnqueue(UUID playerId, String serverName, QueueTier tier) {
+        QueuePersistence currentPersistence = persistence;
+        if (currentPersistence != null) {
+            currentPersistence.recordEnqueue(playerId, serverName, tier);
+        }
     }
 
-    private Map<UUID, Integer> getOrBuildQueuePositions(String serverName, ServerQueue serverQueue) {
-        QueuePositionCacheEntry cached = queuePositionCache.get(serverName);
-        long now = System.nanoTime();
-        long version = serverQueue.version();
-
-        if (cached != null && cached.version() == version && now < cached.expiresAtNanos()) {
-            return cached.positions();
+    private void recordRemove(UUID playerId) {
+        QueuePersistence currentPersistence = persistence;
+        if (currentPersistence != null) {
+            currentPersistence.recordRemove(playerId);
         }
+    }
 
-        Map<UUID, Integer> positions = serverQueue.buildPositionMap(this::getActivePlayer, staleEntryRemover);
-        QueuePositionCacheEntry fresh = new QueuePositionCacheEntry(
-                serverQueue.version(),
-                now + POSITION_CACHE_TTL_NANOS,
-                positions
-        );
-        queuePositionCache.put(serverName, fresh);
-        return positions;
+    private ServerQueue getServerQueue(String serverName) {
+        return reconnectQueues.get(serverName);
     }
 
-    private void invalidatePositionCache(String serverName) {
-        queuePositionCache.remove(serverName);
+    private ServerQueue getOrCreateServerQueue(String serverName) {
+        return reconnectQueues.computeIfAbsent(serverName, key -> new ServerQueue(storeFactory, reservations::isReserved));
     }
 
-    private record QueuePositionCacheEntry(long version, long expiresAtNanos, Map<UUID, Integer> positions) {
+    private Player getActivePlayer(UUID playerId) {
+        return activePlayerResolver.apply(playerId);
     }
 }
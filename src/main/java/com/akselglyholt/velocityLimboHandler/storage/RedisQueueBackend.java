@@ -0,0 +1,304 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import com.akselglyholt.velocityLimboHandler.misc.RespClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Shares one queue per backend server between every proxy connected to the same Redis, so a server coming back
+ * takes players in the order they queued network-wide instead of first-in-line from every proxy at once.
+ * <p>
+ * Each server's queue is a sorted set of {@code proxyId/playerId} members, scored by tier and then by a network-wide
+ * sequence number. Updates are batched and sent as one pipeline when the queue is next drained. A proxy only admits
+ * its own players that are within the first {@code limit} places of the shared queue, and takes them out of it while
+ * their attempt runs so they don't hold up the next players; a failed attempt gets its old place back. Proxies
+ * refresh a heartbeat key, and entries of proxies whose heartbeat expired are dropped so they can't block the queue.
+ */
+public final class RedisQueueBackend implements QueueBackend {
+    private static final String QUEUE_KEY_PREFIX = "vlh:queue:";
+    private static final String SEQUENCE_KEY = "vlh:queue-sequence";
+    private static final String PROXY_KEY_PREFIX = "vlh:proxy:";
+    // Leaves room for 2^40 enqueues per tier, and the whole score stays exact as a Redis double
+    private static final long TIER_SCORE_STEP = 1L << 40;
+    private static final long HEARTBEAT_TTL_MILLIS = 30_000;
+    private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int SCAN_PAGE_SIZE = 64;
+    // Bounds the work of one drain when the head is full of players that can't go
+    private static final int MAX_SCANNED_ENTRIES = 1024;
+
+    private final RespClient client;
+    private final String proxyId;
+    private final Logger logger;
+    private final ConcurrentLinkedDeque<Update> pending = new ConcurrentLinkedDeque<>();
+    private final Object flushLock = new Object();
+    private final Map<UUID, Claim> claims = new ConcurrentHashMap<>();
+
+    private long lastHeartbeatNanos = System.nanoTime() - HEARTBEAT_INTERVAL_NANOS;
+    private volatile long lastFailureLogNanos = System.nanoTime() - FAILURE_LOG_INTERVAL_NANOS;
+
+    // tier is null for a removal
+    private record Update(String serverName, UUID playerId, QueueTier tier) {
+    }
+
+    // The shared queue place of a player whose reconnect attempt is running
+    private record Claim(String serverName, String score) {
+    }
+
+    public RedisQueueBackend(RespClient client, Logger logger) {
+        this(client, UUID.randomUUID().toString(), logger);
+    }
+
+    RedisQueueBackend(RespClient client, String proxyId, Logger logger) {
+        this.client = client;
+        this.proxyId = proxyId;
+        this.logger = logger;
+    }
+
+    @Override
+    public void enqueue(String serverName, UUID playerId, QueueTier tier) {
+        claims.remove(playerId);
+        pending.add(new Update(serverName, playerId, tier));
+    }
+
+    @Override
+    public void remove(String serverName, UUID playerId) {
+        claims.remove(playerId);
+        pending.add(new Update(serverName, playerId, null));
+    }
+
+    @Override
+    public List<UUID> admissible(String serverName, List<UUID> candidates, int limit) {
+        if (candidates.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        flush();
+
+        try {
+            String queueKey = QUEUE_KEY_PREFIX + serverName;
+            restoreFailedClaims(queueKey, serverName, candidates);
+
+            Set<UUID> candidateSet = new HashSet<>(candidates);
+            Set<UUID> ownHead = new HashSet<>();
+            Map<UUID, String> scores = new HashMap<>();
+            Map<String, Boolean> proxyAlive = new HashMap<>();
+            int places = 0;
+
+            // Walk the shared queue until limit places are taken. Our own players that aren't candidates, e.g. because
+            // they are already connecting, don't take a place, and neither do entries of stopped proxies.
+            for (int start = 0; places < limit && start < MAX_SCANNED_ENTRIES; start += SCAN_PAGE_SIZE) {
+                Object reply = client.command("ZRANGE", queueKey, String.valueOf(start),
+                        String.valueOf(start + SCAN_PAGE_SIZE - 1), "WITHSCORES");
+                if (!(reply instanceof List<?> page) || page.isEmpty()) {
+                    break;
+                }
+
+                List<String> foreignMembers = new ArrayList<>();
+                for (int i = 0; i + 1 < page.size(); i += 2) {
+                    String value = String.valueOf(page.get(i));
+                    if (!value.startsWith(proxyId + "/")) {
+                        foreignMembers.add(value);
+                    }
+                }
+                Set<String> stoppedMembers = removeEntriesOfStoppedProxies(queueKey, foreignMembers, proxyAlive);
+
+                for (int i = 0; i + 1 < page.size() && places < limit; i += 2) {
+                    String value = String.valueOf(page.get(i));
+                    if (value.startsWith(proxyId + "/")) {
+                        UUID playerId = UUID.fromString(value.substring(proxyId.length() + 1));
+                        if (candidateSet.contains(playerId)) {
+                            ownHead.add(playerId);
+                            scores.put(playerId, String.valueOf(page.get(i + 1)));
+                            places++;
+                        }
+                    } else if (!stoppedMembers.contains(value)) {
+                        places++;
+                    }
+                }
+
+                if (page.size() < SCAN_PAGE_SIZE * 2) {
+                    break;
+                }
+            }
+
+            List<UUID> admitted = new ArrayList<>();
+            for (UUID candidate : candidates) {
+                if (ownHead.contains(candidate)) {
+                    admitted.add(candidate);
+                }
+            }
+
+            claim(queueKey, serverName, admitted, scores);
+            return admitted;
+        } catch (IOException | RuntimeException e) {
+            logFailure("read the shared queue", e);
+            // Keep reconnecting from the local queue while Redis is unreachable
+            return candidates.size() <= limit ? candidates : candidates.subList(0, limit);
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            long now = System.nanoTime();
+            boolean heartbeatDue = now - lastHeartbeatNanos >= HEARTBEAT_INTERVAL_NANOS;
+
+            List<Update> batch = new ArrayList<>();
+            for (Update update; (update = pending.poll()) != null; ) {
+                batch.add(update);
+            }
+
+            if (batch.isEmpty() && !heartbeatDue) {
+                return;
+            }
+
+            try {
+                long enqueues = batch.stream().filter(update -> update.tier() != null).count();
+                long sequence = 0;
+                if (enqueues > 0) {
+                    Object reply = client.command("INCRBY", SEQUENCE_KEY, String.valueOf(enqueues));
+                    if (!(reply instanceof Long last)) {
+                        throw new IOException("Unexpected reply to INCRBY " + SEQUENCE_KEY + ": " + reply);
+                    }
+                    sequence = last - enqueues;
+                }
+
+                List<String[]> commands = new ArrayList<>(batch.size() + 1);
+                if (heartbeatDue) {
+                    commands.add(new String[]{"SET", PROXY_KEY_PREFIX + proxyId, "1", "PX", String.valueOf(HEARTBEAT_TTL_MILLIS)});
+                }
+
+                for (Update update : batch) {
+                    String queueKey = QUEUE_KEY_PREFIX + update.serverName();
+                    String member = member(update.playerId());
+                    if (update.tier() == null) {
+                        commands.add(new String[]{"ZREM", queueKey, member});
+                    } else {
+                        sequence++;
+                        long score = update.tier().ordinal() * TIER_SCORE_STEP + sequence;
+                        commands.add(new String[]{"ZADD", queueKey, String.valueOf(score), member});
+                    }
+                }
+
+                client.pipeline(commands);
+                if (heartbeatDue) {
+                    lastHeartbeatNanos = now;
+                }
+            } catch (IOException | RuntimeException e) {
+                logFailure("update the shared queue", e);
+                // Put the batch back in front of anything queued meanwhile, in the original order
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    pending.addFirst(batch.get(i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            client.command("DEL", PROXY_KEY_PREFIX + proxyId);
+        } catch (IOException e) {
+            logFailure("remove the proxy heartbeat", e);
+        }
+
+        client.close();
+    }
+
+    // A proxy that stopped without removing its players leaves them at the head; drop them once its heartbeat expired
+    private Set<String> removeEntriesOfStoppedProxies(String queueKey, List<String> foreignMembers,
+                                                      Map<String, Boolean> proxyAlive) throws IOException {
+        if (foreignMembers.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> unchecked = new LinkedHashSet<>();
+        for (String member : foreignMembers) {
+            int separator = member.indexOf('/');
+            if (separator > 0 && !proxyAlive.containsKey(member.substring(0, separator))) {
+                unchecked.add(member.substring(0, separator));
+            }
+        }
+
+        if (!unchecked.isEmpty()) {
+            List<String> proxyIds = new ArrayList<>(unchecked);
+            List<String[]> checks = new ArrayList<>(proxyIds.size());
+            for (String otherProxyId : proxyIds) {
+                checks.add(new String[]{"EXISTS", PROXY_KEY_PREFIX + otherProxyId});
+            }
+
+            List<Object> replies = client.pipeline(checks);
+            for (int i = 0; i < proxyIds.size(); i++) {
+                proxyAlive.put(proxyIds.get(i), !Long.valueOf(0).equals(replies.get(i)));
+            }
+        }
+
+        Set<String> stoppedMembers = new HashSet<>();
+        List<String[]> removals = new ArrayList<>();
+        for (String member : foreignMembers) {
+            int separator = member.indexOf('/');
+            if (separator > 0 && !proxyAlive.getOrDefault(member.substring(0, separator), true)) {
+                stoppedMembers.add(member);
+                removals.add(new String[]{"ZREM", queueKey, member});
+            }
+        }
+
+        client.pipeline(removals);
+        return stoppedMembers;
+    }
+
+    // Takes admitted players out of the shared queue while their attempt runs, remembering their places
+    private void claim(String queueKey, String serverName, List<UUID> admitted, Map<UUID, String> scores) throws IOException {
+        List<String[]> removals = new ArrayList<>(admitted.size());
+        for (UUID playerId : admitted) {
+            claims.put(playerId, new Claim(serverName, scores.get(playerId)));
+            removals.add(new String[]{"ZREM", queueKey, member(playerId)});
+        }
+
+        client.pipeline(removals);
+    }
+
+    // A claimed player that is a candidate again is still queued, so the attempt failed; give the place back
+    private void restoreFailedClaims(String queueKey, String serverName, List<UUID> candidates) throws IOException {
+        List<String[]> additions = new ArrayList<>();
+        for (UUID candidate : candidates) {
+            Claim claim = claims.get(candidate);
+            if (claim != null && claim.serverName().equals(serverName)) {
+                additions.add(new String[]{"ZADD", queueKey, claim.score(), member(candidate)});
+            }
+        }
+
+        client.pipeline(additions);
+        for (UUID candidate : candidates) {
+            claims.computeIfPresent(candidate, (id, claim) -> claim.serverName().equals(serverName) ? null : claim);
+        }
+    }
+
+    private String member(UUID playerId) {
+        return proxyId + "/" + playerId;
+    }
+
+    private void logFailure(String action, Exception e) {
+        long now = System.nanoTime();
+        if (now - lastFailureLogNanos < FAILURE_LOG_INTERVAL_NANOS) {
+            return;
+        }
+
+        lastFailureLogNanos = now;
+        logger.warning("Failed to " + action + " in Redis: " + e.getMessage());
+    }
+}
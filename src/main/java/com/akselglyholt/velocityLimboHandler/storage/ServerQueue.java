@@ -4,34 +4,62 @@ import com.velocitypowered.api.proxy.Player;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Iterator;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 final class ServerQueue {
-    private final LinkedHashSet<UUID> bypass = new LinkedHashSet<>();
-    private final LinkedHashSet<UUID> priority = new LinkedHashSet<>();
-    private final LinkedHashSet<UUID> normal = new LinkedHashSet<>();
+    // How many queue entries are copied out by the first lock acquisition of a maintenance scan
+    private static final int MAINTENANCE_SCAN_WINDOW = 16;
+
+    // Offline players whose place is held after a restart; they are skipped instead of being dropped as stale
+    private final Predicate<UUID> reserved;
+    private final QueueStore bypass;
+    private final QueueStore priority;
+    private final QueueStore normal;
     private final Map<UUID, QueueTier> tierByPlayer = new HashMap<>();
     private final ReentrantLock lock = new ReentrantLock();
-    private final AtomicLong version = new AtomicLong();
+    // Mirrors tierByPlayer.size() for lock-free reads. It counts every entry, so a player that went offline keeps
+    // counting until the entry is dropped by a drain, a prune or the inactive player sweep.
+    private volatile int queuedCount;
 
-    void enqueue(UUID playerId, QueueTier tier) {
+    ServerQueue() {
+        this(IndexedTierQueue::new);
+    }
+
+    ServerQueue(Supplier<QueueStore> storeFactory) {
+        this(storeFactory, playerId -> false);
+    }
+
+    ServerQueue(Supplier<QueueStore> storeFactory, Predicate<UUID> reserved) {
+        Objects.requireNonNull(storeFactory, "storeFactory");
+        this.reserved = Objects.requireNonNull(reserved, "reserved");
+        this.bypass = storeFactory.get();
+        this.priority = storeFactory.get();
+        this.normal = storeFactory.get();
+    }
+
+    /**
+     * @return true if the player was added or moved to another tier, false if they kept their place
+     */
+    boolean enqueue(UUID playerId, QueueTier tier) {
         lock.lock();
         try {
             QueueTier existingTier = tierByPlayer.get(playerId);
             if (existingTier == tier) {
-                return;
+                return false;
             }
 
             if (existingTier != null) {
@@ -40,9 +68,9 @@ final class ServerQueue {
 
             tierSet(tier).add(playerId);
             tierByPlayer.put(playerId, tier);
-            version.incrementAndGet();
+            return true;
         } finally {
-            lock.unlock();
+            unlockAndPublishSize();
         }
     }
 
@@ -54,14 +82,9 @@ final class ServerQueue {
                 return false;
             }
 
-            boolean removed = tierSet(tier).remove(playerId);
-            if (removed) {
-                version.incrementAndGet();
-            }
-
-            return removed;
+            return tierSet(tier).remove(playerId);
         } finally {
-            lock.unlock();
+            unlockAndPublishSize();
         }
     }
 
@@ -71,11 +94,10 @@ final class ServerQueue {
 
         List<UUID> staleEntries = new ArrayList<>();
         Player nextPlayer = null;
-        boolean mutated = false;
 
         lock.lock();
         try {
-            for (LinkedHashSet<UUID> tierSet : orderedTierSets()) {
+            for (QueueStore tierSet : orderedTierSets()) {
                 Iterator<UUID> iterator = tierSet.iterator();
                 while (iterator.hasNext()) {
                     UUID playerId = iterator.next();
@@ -85,81 +107,93 @@ final class ServerQueue {
                         break;
                     }
 
+                    if (reserved.test(playerId)) {
+                        continue;
+                    }
+
                     iterator.remove();
                     tierByPlayer.remove(playerId);
                     staleEntries.add(playerId);
-                    mutated = true;
                 }
 
                 if (nextPlayer != null) {
                     break;
                 }
             }
-
-            if (mutated) {
-                version.incrementAndGet();
-            }
         } finally {
-            lock.unlock();
+            unlockAndPublishSize();
         }
 
         staleEntries.forEach(staleEntryRemover);
         return nextPlayer;
     }
 
-    boolean pruneInactivePlayers(Function<UUID, Player> activePlayerResolver, Consumer<UUID> staleEntryRemover) {
+    /**
+     * Collects up to {@code limit} active players from the head of the queue, in queue order, skipping players
+     * matched by {@code skip} (e.g. players that already have a connection attempt in flight).
+     */
+    List<Player> getNextActivePlayers(int limit,
+                                      Function<UUID, Player> activePlayerResolver,
+                                      Consumer<UUID> staleEntryRemover,
+                                      Predicate<UUID> skip) {
         Objects.requireNonNull(activePlayerResolver, "activePlayerResolver");
         Objects.requireNonNull(staleEntryRemover, "staleEntryRemover");
+        Objects.requireNonNull(skip, "skip");
 
         List<UUID> staleEntries = new ArrayList<>();
-        boolean mutated = false;
+        List<Player> nextPlayers = new ArrayList<>();
 
         lock.lock();
         try {
-            for (LinkedHashSet<UUID> tierSet : orderedTierSets()) {
+            for (QueueStore tierSet : orderedTierSets()) {
                 Iterator<UUID> iterator = tierSet.iterator();
-                while (iterator.hasNext()) {
+                while (iterator.hasNext() && nextPlayers.size() < limit) {
                     UUID playerId = iterator.next();
-                    if (activePlayerResolver.apply(playerId) != null) {
+                    if (skip.test(playerId)) {
+                        continue;
+                    }
+
+                    Player player = activePlayerResolver.apply(playerId);
+                    if (player != null) {
+                        nextPlayers.add(player);
+                        continue;
+                    }
+
+                    if (reserved.test(playerId)) {
                         continue;
                     }
 
                     iterator.remove();
                     tierByPlayer.remove(playerId);
                     staleEntries.add(playerId);
-                    mutated = true;
                 }
-            }
 
-            if (mutated) {
-                version.incrementAndGet();
+                if (nextPlayers.size() >= limit) {
+                    break;
+                }
             }
         } finally {
-            lock.unlock();
+            unlockAndPublishSize();
         }
 
         staleEntries.forEach(staleEntryRemover);
-        return mutated;
+        return nextPlayers;
     }
 
-    Map<UUID, Integer> buildPositionMap(Function<UUID, Player> activePlayerResolver, Consumer<UUID> staleEntryRemover) {
+    boolean pruneInactivePlayers(Function<UUID, Player> activePlayerResolver, Consumer<UUID> staleEntryRemover) {
         Objects.requireNonNull(activePlayerResolver, "activePlayerResolver");
         Objects.requireNonNull(staleEntryRemover, "staleEntryRemover");
 
         List<UUID> staleEntries = new ArrayList<>();
-        Map<UUID, Integer> positions = new HashMap<>();
-        int position = 1;
         boolean mutated = false;
 
         lock.lock();
         try {
-            for (LinkedHashSet<UUID> tierSet : orderedTierSets()) {
+            for (QueueStore tierSet : orderedTierSets()) {
                 Iterator<UUID> iterator = tierSet.iterator();
                 while (iterator.hasNext()) {
                     UUID playerId = iterator.next();
-                    Player player = activePlayerResolver.apply(playerId);
-                    if (player != null) {
-                        positions.putIfAbsent(playerId, position++);
+                    if (activePlayerResolver.apply(playerId) != null || reserved.test(playerId)) {
                         continue;
                     }
 
@@ -169,15 +203,74 @@ final class ServerQueue {
                     mutated = true;
                 }
             }
+        } finally {
+            unlockAndPublishSize();
+        }
+
+        staleEntries.forEach(staleEntryRemover);
+        return mutated;
+    }
+
+    /**
+     * Looks up the 1-based queue position of a player without walking the queue or resolving any players.
+     * Positions count every entry ahead of the player, so stale entries are only dropped once they are pruned
+     * or removed on disconnect.
+     *
+     * @return the player's position, or -1 if the player is not queued for this server
+     */
+    int getQueuePosition(UUID playerId) {
+        lock.lock();
+        try {
+            QueueTier tier = tierByPlayer.get(playerId);
+            if (tier == null) {
+                return -1;
+            }
 
-            if (mutated) {
-                version.incrementAndGet();
+            int ahead = 0;
+            for (QueueTier higherTier : QueueTier.values()) {
+                if (higherTier == tier) {
+                    break;
+                }
+
+                ahead += tierSet(higherTier).size();
+            }
+
+            return ahead + tierSet(tier).rank(playerId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Looks up the positions of several players from one consistent view of the queue, so players notified together
+     * never see positions from different moments. Players that aren't queued here are left out.
+     */
+    Map<UUID, Integer> getQueuePositions(Collection<UUID> playerIds) {
+        Map<UUID, Integer> positions = new HashMap<>();
+
+        lock.lock();
+        try {
+            int bypassSize = bypass.size();
+            int priorityAhead = bypassSize;
+            int normalAhead = bypassSize + priority.size();
+
+            for (UUID playerId : playerIds) {
+                QueueTier tier = tierByPlayer.get(playerId);
+                if (tier == null) {
+                    continue;
+                }
+
+                int ahead = switch (tier) {
+                    case BYPASS -> 0;
+                    case PRIORITY -> priorityAhead;
+                    case NORMAL -> normalAhead;
+                };
+                positions.put(playerId, ahead + tierSet(tier).rank(playerId));
             }
         } finally {
             lock.unlock();
         }
 
-        staleEntries.forEach(staleEntryRemover);
         return positions;
     }
 
@@ -187,11 +280,10 @@ final class ServerQueue {
 
         List<UUID> staleEntries = new ArrayList<>();
         List<PlayerManager.QueuedPlayer> activePlayers = new ArrayList<>();
-        boolean mutated = false;
 
         lock.lock();
         try {
-            for (LinkedHashSet<UUID> tierSet : orderedTierSets()) {
+            for (QueueStore tierSet : orderedTierSets()) {
                 Iterator<UUID> iterator = tierSet.iterator();
                 while (iterator.hasNext()) {
                     UUID playerId = iterator.next();
@@ -201,104 +293,153 @@ final class ServerQueue {
                         continue;
                     }
 
+                    if (reserved.test(playerId)) {
+                        continue;
+                    }
+
                     iterator.remove();
                     tierByPlayer.remove(playerId);
                     staleEntries.add(playerId);
-                    mutated = true;
                 }
             }
-
-            if (mutated) {
-                version.incrementAndGet();
-            }
         } finally {
-            lock.unlock();
+            unlockAndPublishSize();
         }
 
         staleEntries.forEach(staleEntryRemover);
         return activePlayers;
     }
 
-    Player findFirstActiveMatching(Function<UUID, Player> activePlayerResolver,
-                                   Consumer<UUID> staleEntryRemover,
-                                   Predicate<Player> matcher) {
+    /**
+     * Picks the first queued player, in queue order, that {@code eligible} lets through while the server is in
+     * maintenance. Eligibility is checked live on every call, so a player granted a bypass while queued is picked up
+     * on the next drain; players that aren't eligible keep their place.
+     * <p>
+     * The permission and whitelist checks run without holding the lock: windows of the queue are copied under the
+     * lock, checked lock-free, and the chosen candidate is confirmed to still be queued afterwards. Each window
+     * doubles in size so a long queue without eligible players is copied a bounded number of times.
+     */
+    Player findFirstMaintenanceEligible(Function<UUID, Player> activePlayerResolver,
+                                        Consumer<UUID> staleEntryRemover,
+                                        Predicate<Player> eligible) {
         Objects.requireNonNull(activePlayerResolver, "activePlayerResolver");
         Objects.requireNonNull(staleEntryRemover, "staleEntryRemover");
-        Objects.requireNonNull(matcher, "matcher");
+        Objects.requireNonNull(eligible, "eligible");
 
         List<UUID> staleEntries = new ArrayList<>();
+        Set<UUID> checked = new HashSet<>();
         Player matchedPlayer = null;
-        boolean mutated = false;
+        int windowSize = MAINTENANCE_SCAN_WINDOW;
 
-        lock.lock();
-        try {
-            for (LinkedHashSet<UUID> tierSet : orderedTierSets()) {
-                Iterator<UUID> iterator = tierSet.iterator();
-                while (iterator.hasNext()) {
-                    UUID playerId = iterator.next();
-                    Player player = activePlayerResolver.apply(playerId);
-                    if (player == null) {
-                        iterator.remove();
-                        tierByPlayer.remove(playerId);
-                        staleEntries.add(playerId);
-                        mutated = true;
-                        continue;
-                    }
+        while (matchedPlayer == null) {
+            List<UUID> window = queueWindow(windowSize);
 
-                    if (matcher.test(player)) {
-                        matchedPlayer = player;
-                        break;
+            List<UUID> staleCandidates = new ArrayList<>();
+            Player candidate = null;
+            for (UUID playerId : window) {
+                if (!checked.add(playerId)) {
+                    continue;
+                }
+
+                Player player = activePlayerResolver.apply(playerId);
+                if (player == null) {
+                    if (!reserved.test(playerId)) {
+                        staleCandidates.add(playerId);
                     }
+                    continue;
                 }
 
-                if (matchedPlayer != null) {
+                if (eligible.test(player)) {
+                    candidate = player;
                     break;
                 }
             }
 
-            if (mutated) {
-                version.incrementAndGet();
+            lock.lock();
+            try {
+                for (UUID playerId : staleCandidates) {
+                    QueueTier tier = tierByPlayer.remove(playerId);
+                    if (tier != null) {
+                        tierSet(tier).remove(playerId);
+                        staleEntries.add(playerId);
+                    }
+                }
+
+                // The candidate may have left the queue while the checks ran; if so, keep scanning
+                if (candidate != null && tierByPlayer.containsKey(candidate.getUniqueId())) {
+                    matchedPlayer = candidate;
+                }
+            } finally {
+                unlockAndPublishSize();
+            }
+
+            if (candidate == null) {
+                if (window.size() < windowSize) {
+                    break;
+                }
+
+                windowSize *= 2;
             }
-        } finally {
-            lock.unlock();
         }
 
         staleEntries.forEach(staleEntryRemover);
         return matchedPlayer;
     }
 
-    List<Queue<UUID>> orderedQueues() {
+    // Copies up to the first size entries of the queue, in queue order
+    private List<UUID> queueWindow(int size) {
+        List<UUID> window = new ArrayList<>(Math.min(size, queuedCount));
+
         lock.lock();
         try {
-            return List.of(new ArrayDeque<>(bypass), new ArrayDeque<>(priority), new ArrayDeque<>(normal));
+            for (QueueStore tierSet : orderedTierSets()) {
+                for (UUID playerId : tierSet) {
+                    if (window.size() >= size) {
+                        return window;
+                    }
+
+                    window.add(playerId);
+                }
+            }
         } finally {
             lock.unlock();
         }
+
+        return window;
     }
 
-    boolean isEmpty() {
+    List<Queue<UUID>> orderedQueues() {
         lock.lock();
         try {
-            return tierByPlayer.isEmpty();
+            return List.of(new ArrayDeque<>(bypass), new ArrayDeque<>(priority), new ArrayDeque<>(normal));
         } finally {
             lock.unlock();
         }
     }
 
-    int size() {
+    boolean contains(UUID playerId) {
         lock.lock();
         try {
-            return tierByPlayer.size();
+            return tierByPlayer.containsKey(playerId);
         } finally {
             lock.unlock();
         }
     }
 
-    long version() {
-        return version.get();
+    boolean isEmpty() {
+        return queuedCount == 0;
+    }
+
+    int size() {
+        return queuedCount;
+    }
+
+    private void unlockAndPublishSize() {
+        queuedCount = tierByPlayer.size();
+        lock.unlock();
     }
 
-    private LinkedHashSet<UUID> tierSet(QueueTier tier) {
+    private QueueStore tierSet(QueueTier tier) {
         return switch (tier) {
             case BYPASS -> bypass;
             case PRIORITY -> priority;
@@ -306,7 +447,7 @@ final class ServerQueue {
         };
     }
 
-    private List<LinkedHashSet<UUID>> orderedTierSets() {
+    private List<QueueStore> orderedTierSets() {
         return List.of(bypass, priority, normal);
     }
 
@@ -0,0 +1,23 @@
+package com.akselglyholt.velocityLimboHandler.tasks;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
+
+/**
+ * Catches tracked players that went offline without a disconnect being seen. Disconnects and limbo exits already
+ * remove players directly, so each run only checks a bounded batch of players.
+ */
+public class InactivePlayerSweepTask implements Runnable {
+    private final PlayerManager playerManager;
+    private final ConfigManager configManager;
+
+    public InactivePlayerSweepTask(PlayerManager playerManager, ConfigManager configManager) {
+        this.playerManager = playerManager;
+        this.configManager = configManager;
+    }
+
+    @Override
+    public void run() {
+        playerManager.sweepInactivePlayers(Math.max(1, configManager.getInactiveSweepBatchSize()));
+    }
+}
@@ -0,0 +1,240 @@
+package com.akselglyholt.velocityLimboHandler.tasks;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * The plugin's own threads, so queue work, queue notifications, pinging and queue storage can't hold each other up or
+ * compete with other plugins on Velocity's shared scheduler.
+ * <p>
+ * One ticker thread only triggers repeating tasks; the work runs on a fixed-size pool per {@link Pool} with a bounded
+ * queue. A repeating task never runs twice at once: a tick that arrives while the previous run is still going is
+ * skipped and counted, so an overrunning cycle is merged into the next one instead of piling up runs behind it.
+ * When a pool's queue is full, one-off work runs on the submitting thread, which slows the submitter down rather than
+ * dropping the work.
+ */
+public final class LimboExecutors {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+
+    private final Logger logger;
+    private final ScheduledExecutorService ticker;
+    private final Map<Pool, PoolState> pools = new EnumMap<>(Pool.class);
+
+    public enum Pool {
+        // Draining queues and sweeps
+        QUEUE("queue"),
+        // Queue position messages
+        NOTIFY("notify"),
+        // Server health and maintenance checks, and handling ping results
+        PING("ping"),
+        // Writing the queues to disk and sending them to the shared queue backend, so slow I/O can't hold up a drain
+        IO("io");
+
+        private final String displayName;
+
+        Pool(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Point-in-time numbers for one pool, for {@code /vlh status}.
+     *
+     * @param activeThreads threads currently running a task
+     * @param queuedTasks tasks waiting for a thread
+     * @param callerRuns tasks that ran on the submitting thread because the queue was full
+     * @param skippedTicks ticks of repeating tasks skipped because the previous run hadn't finished
+     */
+    public record PoolStats(Pool pool, int threads, int activeThreads, int queuedTasks, long completedTasks,
+                            long callerRuns, long skippedTicks) {
+
+        /**
+         * @return the share of the pool that is busy or spoken for, where 1.0 means every thread is working
+         */
+        public double saturation() {
+            return threads == 0 ? 0 : Math.min(1.0, (activeThreads + queuedTasks) / (double) threads);
+        }
+    }
+
+    public LimboExecutors(int queueThreads, int notifyThreads, int pingThreads, int ioThreads, Logger logger) {
+        this.logger = logger;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(threadFactory("vlh-ticker"));
+        pools.put(Pool.QUEUE, new PoolState(Pool.QUEUE, queueThreads));
+        pools.put(Pool.NOTIFY, new PoolState(Pool.NOTIFY, notifyThreads));
+        pools.put(Pool.PING, new PoolState(Pool.PING, pingThreads));
+        pools.put(Pool.IO, new PoolState(Pool.IO, ioThreads));
+    }
+
+    /**
+     * Runs the task on the pool now and then every {@code period}.
+     */
+    public RepeatingTask repeat(Pool pool, Runnable task, long period, TimeUnit unit) {
+        RepeatingTask repeatingTask = new RepeatingTask(pools.get(pool), task);
+        repeatingTask.tick = ticker.scheduleAtFixedRate(repeatingTask::tick, 0, period, unit);
+        return repeatingTask;
+    }
+
+    /**
+     * Runs the task once on the pool, as soon as a thread is free.
+     */
+    public void execute(Pool pool, Runnable task) {
+        pools.get(pool).executor.execute(() -> runLogged(task));
+    }
+
+    /**
+     * @return the pool as a plain {@link Executor}, e.g. for {@code CompletableFuture} callbacks
+     */
+    public Executor executor(Pool pool) {
+        return task -> execute(pool, task);
+    }
+
+    public List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>(pools.size());
+        for (PoolState state : pools.values()) {
+            ThreadPoolExecutor executor = state.executor;
+            stats.add(new PoolStats(state.pool, executor.getMaximumPoolSize(), executor.getActiveCount(),
+                    executor.getQueue().size(), executor.getCompletedTaskCount(), state.callerRuns.get(),
+                    state.skippedTicks.get()));
+        }
+
+        return stats;
+    }
+
+    /**
+     * Stops triggering repeating tasks and gives running work a moment to finish before interrupting it.
+     */
+    public void shutdown() {
+        ticker.shutdownNow();
+        for (PoolState state : pools.values()) {
+            state.executor.shutdown();
+        }
+
+        try {
+            for (PoolState state : pools.values()) {
+                if (!state.executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    state.executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (PoolState state : pools.values()) {
+                state.executor.shutdownNow();
+            }
+        }
+    }
+
+    private void runLogged(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.warning("Limbo handler task failed: " + e);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PoolState {
+        private final Pool pool;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong callerRuns = new AtomicLong();
+        private final AtomicLong skippedTicks = new AtomicLong();
+
+        private PoolState(Pool pool, int threads) {
+            int size = Math.max(1, threads);
+            this.pool = pool;
+            this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory("vlh-" + pool.getDisplayName()),
+                    (task, rejectedBy) -> {
+                        if (rejectedBy.isShutdown()) {
+                            throw new RejectedExecutionException("Limbo handler executors are shut down");
+                        }
+
+                        callerRuns.incrementAndGet();
+                        task.run();
+                    });
+        }
+    }
+
+    /**
+     * Handle of a task started with {@link #repeat}.
+     */
+    public final class RepeatingTask {
+        private final PoolState state;
+        private final Runnable task;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile ScheduledFuture<?> tick;
+        private volatile boolean cancelled;
+
+        private RepeatingTask(PoolState state, Runnable task) {
+            this.state = state;
+            this.task = task;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> scheduled = tick;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        // Runs on the ticker thread, which shouldn't end up running the task itself
+        private void tick() {
+            if (cancelled) return;
+
+            if (!running.compareAndSet(false, true)) {
+                state.skippedTicks.incrementAndGet();
+                return;
+            }
+
+            if (state.executor.getQueue().remainingCapacity() == 0) {
+                running.set(false);
+                state.skippedTicks.incrementAndGet();
+                return;
+            }
+
+            try {
+                state.executor.execute(this::runOnce);
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+            }
+        }
+
+        private void runOnce() {
+            try {
+                if (!cancelled) {
+                    runLogged(task);
+                }
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+}
@@ -1,18 +1,21 @@
 package com.akselglyholt.velocityLimboHandler.tasks;
 
 import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
-import com.akselglyholt.velocityLimboHandler.misc.MessageFormatter;
 import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class QueueNotifierTask implements Runnable {
     private final RegisteredServer limboServer;
     private final PlayerManager playerManager;
     private final ConfigManager configManager;
-    private final MiniMessage miniMessage = MiniMessage.miniMessage();
 
     public QueueNotifierTask(RegisteredServer limboServer, PlayerManager playerManager, ConfigManager configManager) {
         this.limboServer = limboServer;
@@ -22,40 +25,45 @@ public class QueueNotifierTask implements Runnable {
 
     @Override
     public void run() {
+        Map<String, Boolean> maintenanceCache = new HashMap<>();
+        Map<String, List<Player>> waitingByServer = new HashMap<>();
+
         for (Player player : limboServer.getPlayersConnected()) {
             // Always show connection issue messages regardless of queue status
             if (playerManager.hasConnectionIssue(player)) {
                 String issue = playerManager.getConnectionIssue(player);
 
                 if ("banned".equals(issue)) {
-                    String formatedMsg = MessageFormatter.formatMessage(configManager.getBannedMsg(), player);
-
-                    player.sendMessage(miniMessage.deserialize(formatedMsg));
+                    player.sendMessage(configManager.getBannedMessage().render(() -> playerManager.getQueuePosition(player)));
                 } else if ("not_whitelisted".equals(issue)) {
-                    String formatedMsg = MessageFormatter.formatMessage(configManager.getWhitelistedMsg(), player);
-
-                    player.sendMessage(miniMessage.deserialize(formatedMsg));
+                    player.sendMessage(configManager.getNotWhitelistedMessage().render(() -> playerManager.getQueuePosition(player)));
                 }
                 continue;
             }
 
-            RegisteredServer previousServer = playerManager.getPreviousServer(player);
-
-            if (Utility.isServerInMaintenance(previousServer.getServerInfo().getName())) {
-                String formatedMsg = MessageFormatter.formatMessage(configManager.getMaintenanceModeMsg(), player);
+            String serverName = playerManager.getPreviousServerName(player);
 
-                player.sendMessage(miniMessage.deserialize(formatedMsg));
+            if (maintenanceCache.computeIfAbsent(serverName, Utility::isServerInMaintenance)) {
+                player.sendMessage(configManager.getMaintenanceModeMessage().render(() -> playerManager.getQueuePosition(player)));
                 continue;
             }
 
-            // Only show queue position if queue is enabled
-            if (!configManager.isQueueEnabled()) continue;
+            waitingByServer.computeIfAbsent(serverName, key -> new ArrayList<>()).add(player);
+        }
 
-            int position = playerManager.getQueuePosition(player);
-            if (position == -1) continue;
-            String formatedQueuePositionMsg = MessageFormatter.formatMessage(configManager.getQueuePositionMsg(), player, position);
+        // Only show queue position if queue is enabled
+        if (!configManager.isQueueEnabled()) return;
 
-            player.sendMessage(miniMessage.deserialize(formatedQueuePositionMsg));
-        }
+        // One snapshot per server queue, so everyone waiting for the same server sees consistent positions
+        waitingByServer.forEach((serverName, players) -> {
+            Map<UUID, Integer> positions = playerManager.getQueuePositions(serverName, players);
+
+            for (Player player : players) {
+                Integer position = positions.get(player.getUniqueId());
+                if (position == null) continue;
+
+                player.sendMessage(configManager.getQueuePositionMessage().render(position));
+            }
+        });
     }
 }
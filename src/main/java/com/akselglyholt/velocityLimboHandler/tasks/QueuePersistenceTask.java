@@ -0,0 +1,44 @@
+package com.akselglyholt.velocityLimboHandler.tasks;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
+import com.akselglyholt.velocityLimboHandler.storage.QueuePersistence;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Flushes the queue journal to disk on every run and replaces it with a fresh snapshot once the snapshot interval
+ * has passed, so the journal never grows much beyond one interval of changes.
+ */
+public class QueuePersistenceTask implements Runnable {
+    private final QueuePersistence persistence;
+    private final PlayerManager playerManager;
+    private final ConfigManager configManager;
+    private final Logger logger;
+    private long lastSnapshotNanos = System.nanoTime();
+
+    public QueuePersistenceTask(QueuePersistence persistence, PlayerManager playerManager, ConfigManager configManager, Logger logger) {
+        this.persistence = persistence;
+        this.playerManager = playerManager;
+        this.configManager = configManager;
+        this.logger = logger;
+    }
+
+    @Override
+    public synchronized void run() {
+        long now = System.nanoTime();
+        if (now - lastSnapshotNanos < TimeUnit.SECONDS.toNanos(configManager.getQueueSnapshotInterval())) {
+            persistence.flush();
+            return;
+        }
+
+        lastSnapshotNanos = now;
+        try {
+            persistence.writeSnapshot(playerManager::getQueueSnapshot);
+        } catch (IOException e) {
+            logger.warning("Failed to write the queue snapshot: " + e.getMessage());
+        }
+    }
+}
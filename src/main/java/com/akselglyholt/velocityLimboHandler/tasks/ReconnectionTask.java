@@ -3,6 +3,7 @@ package com.akselglyholt.velocityLimboHandler.tasks;
 import com.akselglyholt.velocityLimboHandler.auth.AuthManager;
 import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
 import com.akselglyholt.velocityLimboHandler.managers.ReconnectHandler;
+import com.akselglyholt.velocityLimboHandler.managers.ServerHealthMonitor;
 import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
 import com.velocitypowered.api.proxy.Player;
@@ -20,60 +21,55 @@ public class ReconnectionTask implements Runnable {
     private final AuthManager authManager;
     private final ConfigManager configManager;
     private final ReconnectHandler reconnectHandler;
+    private final ServerHealthMonitor healthMonitor;
 
     public ReconnectionTask(ProxyServer proxyServer, RegisteredServer limboServer, PlayerManager playerManager,
-                            AuthManager authManager, ConfigManager configManager, ReconnectHandler reconnectHandler) {
+                            AuthManager authManager, ConfigManager configManager, ReconnectHandler reconnectHandler,
+                            ServerHealthMonitor healthMonitor) {
         this.proxyServer = proxyServer;
         this.limboServer = limboServer;
         this.playerManager = playerManager;
         this.authManager = authManager;
         this.configManager = configManager;
         this.reconnectHandler = reconnectHandler;
+        this.healthMonitor = healthMonitor;
     }
 
     @Override
-    public void run() {
+    public synchronized void run() {
         // Prevent unnecessary processing when no players are connected
         Collection<Player> connectedPlayers = limboServer.getPlayersConnected();
         if (connectedPlayers.isEmpty()) return;
 
-        // Prune all in-active members
-        playerManager.pruneInactivePlayers();
-
         // Loop through all servers, if queue is enabled
         Map<String, Boolean> maintenanceCache = new HashMap<>();
 
         if (configManager.isQueueEnabled()) {
             for (RegisteredServer server : proxyServer.getAllServers()) {
-                // Check if the server is in Maintenance mode
-                if (isServerInMaintenance(server, maintenanceCache)) {
-                    // Is in Maintenance mode, so find first player in queue that can join
-                    Player whitelistedPlayer = PlayerManager.findFirstMaintenanceAllowedPlayer(server);
-
-                    if (whitelistedPlayer != null && whitelistedPlayer.isActive()) {
-                        reconnectHandler.reconnectPlayer(whitelistedPlayer);
-                    }
-                } else {
-                    // Is not in Maintenance mode, so carry on with normal queue.
-                    Player nextPlayer = playerManager.getNextQueuedPlayer(server);
-                    if (nextPlayer == null) {
-                        continue;
-                    }
-
-                    reconnectHandler.reconnectPlayer(nextPlayer);
-                }
+                drainQueue(server, maintenanceCache, false);
             }
         } else {
+            Map<String, Integer> freeSlotsByServer = new HashMap<>();
+
             for (Player player : connectedPlayers) {
                 if (!playerManager.hasConnectionIssue(player) && player.isActive()) {
                     // Check if the server is in maintenance mode
                     RegisteredServer previousServer = playerManager.getPreviousServer(player);
+                    String serverName = previousServer.getServerInfo().getName();
+
+                    int freeSlots = freeSlotsByServer.computeIfAbsent(serverName,
+                            key -> healthMonitor.isUnavailable(previousServer) || reconnectHandler.isBackingOff(previousServer)
+                                    ? 0
+                                    : freeSlots(previousServer));
+                    if (freeSlots <= 0) {
+                        continue;
+                    }
 
                     if (isServerInMaintenance(previousServer, maintenanceCache)) {
                         // Continue only if player does NOT have a maintenance bypass/whitelist entry
                         boolean canBypassMaintenance = player.hasPermission("maintenance.admin")
                                 || player.hasPermission("maintenance.bypass")
-                                || player.hasPermission("maintenance.singleserver.bypass." + previousServer.getServerInfo().getName())
+                                || player.hasPermission("maintenance.singleserver.bypass." + serverName)
                                 || Utility.playerMaintenanceWhitelisted(player);
 
                         if (!canBypassMaintenance) {
@@ -83,13 +79,69 @@ public class ReconnectionTask implements Runnable {
 
                     boolean reconnectAttempted = reconnectHandler.reconnectPlayer(player);
                     if (reconnectAttempted) {
-                        break;
+                        freeSlotsByServer.put(serverName, freeSlots - 1);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Drains a single server straight away instead of waiting for the next scheduled tick, because the server was
+     * just seen coming back online. The health monitor may not have confirmed the recovery yet, so only the
+     * admission window and backoff decide how many players are sent.
+     */
+    public synchronized void wakeUp(RegisteredServer server) {
+        if (!configManager.isQueueEnabled()) {
+            run();
+            return;
+        }
+
+        if (limboServer.getPlayersConnected().isEmpty()) return;
+
+        drainQueue(server, new HashMap<>(), true);
+    }
+
+    private void drainQueue(RegisteredServer server, Map<String, Boolean> maintenanceCache, boolean recovering) {
+        // Leave the queue alone while the server is known to be down or full, or after repeated failures
+        if ((!recovering && healthMonitor.isUnavailable(server)) || reconnectHandler.isBackingOff(server)) {
+            return;
+        }
+
+        // Check if the server is in Maintenance mode
+        if (isServerInMaintenance(server, maintenanceCache)) {
+            // Is in Maintenance mode, so find first player in queue that can join
+            Player whitelistedPlayer = PlayerManager.findFirstMaintenanceAllowedPlayer(server);
+
+            if (whitelistedPlayer != null && whitelistedPlayer.isActive()) {
+                reconnectHandler.reconnectPlayer(whitelistedPlayer);
+            }
+            return;
+        }
+
+        // Is not in Maintenance mode, so fill the server's admission window with the next players in line. The free
+        // slots of a recovering server are from before the outage, so only the admission window counts then.
+        int freeSlots = recovering ? admissionSlots(server) : freeSlots(server);
+        if (freeSlots <= 0) {
+            return;
+        }
+
+        for (Player nextPlayer : playerManager.getNextQueuedPlayers(server, freeSlots)) {
+            reconnectHandler.reconnectPlayer(nextPlayer);
+        }
+    }
+
+    // How many more reconnects the server can take right now: bounded by its admission window (always at least
+    // one attempt) and by the free player slots seen by the health monitor
+    private int freeSlots(RegisteredServer server) {
+        return Math.min(admissionSlots(server), healthMonitor.getFreeSlots(server));
+    }
+
+    private int admissionSlots(RegisteredServer server) {
+        int admissionWindow = Math.max(1, reconnectHandler.getAdmissionWindow(server));
+        return admissionWindow - reconnectHandler.getInFlightCount(server);
+    }
+
     private boolean isServerInMaintenance(RegisteredServer server, Map<String, Boolean> maintenanceCache) {
         String serverName = server.getServerInfo().getName();
         return maintenanceCache.computeIfAbsent(serverName, Utility::isServerInMaintenance);
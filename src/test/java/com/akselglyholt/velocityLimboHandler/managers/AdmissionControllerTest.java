@@ -0,0 +1,70 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControllerTest {
+    private ConfigManager configManager;
+    private AdmissionController admissionController;
+    private RegisteredServer server;
+
+    @BeforeEach
+    void setUp() {
+        configManager = mock(ConfigManager.class);
+        when(configManager.isAdaptiveAdmissionEnabled()).thenReturn(true);
+        when(configManager.getMaxReconnectsPerTick()).thenReturn(8);
+        when(configManager.getAdmissionInitialWindow()).thenReturn(2);
+        when(configManager.getAdmissionLatencyThreshold()).thenReturn(1000);
+
+        admissionController = new AdmissionController(configManager);
+        server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn("survival");
+    }
+
+    @Test
+    void fastSuccesses_growWindowUpToConfiguredMaximum() {
+        assertEquals(2, admissionController.getWindow(server));
+
+        for (int i = 0; i < 20; i++) {
+            admissionController.recordSuccess(server, TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        assertEquals(8, admissionController.getWindow(server));
+    }
+
+    @Test
+    void failureOrSlowJoin_halvesWindowOncePerCooldown() {
+        for (int i = 0; i < 6; i++) {
+            admissionController.recordSuccess(server, TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertEquals(8, admissionController.getWindow(server));
+
+        admissionController.recordSuccess(server, TimeUnit.SECONDS.toNanos(5));
+        assertEquals(4, admissionController.getWindow(server));
+
+        // A burst of failures inside the same cooldown only counts once
+        admissionController.recordFailure(server);
+        admissionController.recordFailure(server);
+        assertEquals(4, admissionController.getWindow(server));
+    }
+
+    @Test
+    void disabled_alwaysUsesConfiguredMaximum() {
+        when(configManager.isAdaptiveAdmissionEnabled()).thenReturn(false);
+
+        admissionController.recordFailure(server);
+
+        assertEquals(8, admissionController.getWindow(server));
+    }
+}
@@ -0,0 +1,51 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReconnectBackoffTest {
+    private ReconnectBackoff reconnectBackoff;
+    private RegisteredServer server;
+    private RegisteredServer otherServer;
+
+    @BeforeEach
+    void setUp() {
+        ConfigManager configManager = mock(ConfigManager.class);
+        when(configManager.getReconnectBackoffBase()).thenReturn(60000);
+        when(configManager.getReconnectBackoffMax()).thenReturn(120000);
+
+        reconnectBackoff = new ReconnectBackoff(configManager);
+        server = mockServer("survival");
+        otherServer = mockServer("lobby");
+    }
+
+    @Test
+    void failure_pausesOnlyThatServerUntilReset() {
+        assertFalse(reconnectBackoff.isBackingOff(server));
+
+        reconnectBackoff.recordFailure(server);
+
+        assertTrue(reconnectBackoff.isBackingOff(server));
+        assertFalse(reconnectBackoff.isBackingOff(otherServer));
+
+        reconnectBackoff.reset(server);
+
+        assertFalse(reconnectBackoff.isBackingOff(server));
+    }
+
+    private static RegisteredServer mockServer(String name) {
+        RegisteredServer server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn(name);
+        return server;
+    }
+}
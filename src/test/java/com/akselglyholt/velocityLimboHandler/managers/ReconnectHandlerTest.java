@@ -0,0 +1,108 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.auth.AuthManager;
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReconnectHandlerTest {
+    private PlayerManager playerManager;
+    private ServerPingCache serverPingCache;
+    private RegisteredServer server;
+    private Player player;
+    private ReconnectHandler reconnectHandler;
+
+    @BeforeEach
+    void setUp() {
+        playerManager = mock(PlayerManager.class);
+        serverPingCache = mock(ServerPingCache.class);
+        ConfigManager configManager = mock(ConfigManager.class);
+        // A single permit, so a leaked one would block every later attempt
+        when(configManager.getMaxReconnectsPerTick()).thenReturn(1);
+
+        server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn("survival");
+
+        player = mock(Player.class);
+        when(player.isActive()).thenReturn(true);
+        when(player.getUsername()).thenReturn("Steve");
+        when(playerManager.getPreviousServer(player)).thenReturn(server);
+
+        reconnectHandler = new ReconnectHandler(playerManager, mock(AuthManager.class), configManager, serverPingCache,
+                Logger.getLogger("ReconnectHandlerTest"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconnectHandler.shutdown();
+    }
+
+    @Test
+    void throwingAttempt_releasesConnectingFlagInFlightCountAndPermit() throws InterruptedException {
+        when(serverPingCache.ping(server)).thenThrow(new IllegalStateException("boom"));
+
+        assertTrue(reconnectHandler.reconnectPlayer(player));
+        verify(playerManager, timeout(2000)).setPlayerConnecting(player, false);
+        awaitNoAttemptsInFlight();
+
+        assertTrue(reconnectHandler.reconnectPlayer(player));
+        verify(serverPingCache, timeout(2000).times(2)).ping(server);
+        verify(playerManager, timeout(2000).times(2)).setPlayerConnecting(player, false);
+        awaitNoAttemptsInFlight();
+    }
+
+    @Test
+    void failedPing_releasesConnectingFlagInFlightCountAndPermit() throws InterruptedException {
+        when(serverPingCache.ping(server)).thenReturn(CompletableFuture.failedFuture(new IOException("offline")));
+
+        assertTrue(reconnectHandler.reconnectPlayer(player));
+        verify(playerManager, timeout(2000)).setPlayerConnecting(player, false);
+        awaitNoAttemptsInFlight();
+
+        assertTrue(reconnectHandler.reconnectPlayer(player));
+        verify(serverPingCache, timeout(2000).times(2)).ping(server);
+        verify(playerManager, timeout(2000).times(2)).setPlayerConnecting(player, false);
+        awaitNoAttemptsInFlight();
+        verify(playerManager, times(2)).setPlayerConnecting(player, true);
+    }
+
+    @Test
+    void shutdown_interruptsAnAttemptWaitingOnThePing() throws InterruptedException {
+        when(serverPingCache.ping(server)).thenReturn(new CompletableFuture<>());
+
+        assertTrue(reconnectHandler.reconnectPlayer(player));
+        verify(serverPingCache, timeout(2000)).ping(server);
+
+        reconnectHandler.shutdown();
+        verify(playerManager, timeout(2000)).setPlayerConnecting(player, false);
+        awaitNoAttemptsInFlight();
+    }
+
+    private void awaitNoAttemptsInFlight() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (reconnectHandler.getInFlightCount(server) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, reconnectHandler.getInFlightCount(server));
+    }
+}
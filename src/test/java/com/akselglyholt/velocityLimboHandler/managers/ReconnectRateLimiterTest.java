@@ -0,0 +1,149 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.misc.FakeRedisServer;
+import com.akselglyholt.velocityLimboHandler.misc.RespClient;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReconnectRateLimiterTest {
+    private static final Logger logger = Logger.getLogger("ReconnectRateLimiterTest");
+
+    private ConfigManager configManager;
+    private RegisteredServer server;
+    private RegisteredServer otherServer;
+
+    @BeforeEach
+    void setUp() {
+        configManager = mock(ConfigManager.class);
+        server = mockServer("survival");
+        otherServer = mockServer("lobby");
+    }
+
+    @Test
+    void tryAcquire_alwaysAllowsWhenNoLimitIsConfigured() {
+        when(configManager.getReconnectRateLimit()).thenReturn(0);
+        ReconnectRateLimiter limiter = new ReconnectRateLimiter(configManager, new InMemoryReconnectRateStore());
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(server));
+        }
+    }
+
+    @Test
+    void tryAcquire_inMemoryStoreCapsEachServerSeparately() {
+        when(configManager.getReconnectRateLimit()).thenReturn(3);
+        ReconnectRateLimiter limiter = new ReconnectRateLimiter(configManager, new InMemoryReconnectRateStore());
+
+        assertTrue(limiter.tryAcquire(server));
+        assertTrue(limiter.tryAcquire(server));
+        assertTrue(limiter.tryAcquire(server));
+        assertFalse(limiter.tryAcquire(server));
+
+        assertTrue(limiter.tryAcquire(otherServer));
+    }
+
+    @Test
+    void tryAcquire_redisStoreSharesTheLimitBetweenProxies() throws IOException {
+        when(configManager.getReconnectRateLimit()).thenReturn(3);
+
+        try (FakeRedisServer redis = new FakeRedisServer()) {
+            redis.stopClock();
+            ReconnectRateStore firstStore = new RedisReconnectRateStore(new RespClient(redis.getHost(), redis.getPort(), null), logger);
+            ReconnectRateStore secondStore = new RedisReconnectRateStore(new RespClient(redis.getHost(), redis.getPort(), null), logger);
+            ReconnectRateLimiter firstProxy = new ReconnectRateLimiter(configManager, firstStore);
+            ReconnectRateLimiter secondProxy = new ReconnectRateLimiter(configManager, secondStore);
+
+            assertEquals(3, acquireAlternating(firstProxy, secondProxy, 4));
+
+            // A third of a second refills one token, shared by both proxies
+            redis.advanceClock(334);
+            assertEquals(1, acquireAlternating(firstProxy, secondProxy, 2));
+
+            // The bucket never holds more than one second worth
+            redis.advanceClock(10_000);
+            assertEquals(3, acquireAlternating(firstProxy, secondProxy, 4));
+
+            firstStore.close();
+            secondStore.close();
+        }
+    }
+
+    @Test
+    void tryAcquire_redisStoreFallsBackToLocalLimitWhenUnreachable() throws IOException {
+        when(configManager.getReconnectRateLimit()).thenReturn(2);
+
+        FakeRedisServer stopped = new FakeRedisServer();
+        String host = stopped.getHost();
+        int port = stopped.getPort();
+        stopped.close();
+
+        ReconnectRateStore store = new RedisReconnectRateStore(new RespClient(host, port, null), logger);
+        ReconnectRateLimiter limiter = new ReconnectRateLimiter(configManager, store);
+
+        assertTrue(limiter.tryAcquire(server));
+        assertTrue(limiter.tryAcquire(server));
+        assertFalse(limiter.tryAcquire(server));
+
+        store.close();
+    }
+
+    @Test
+    void tryAcquire_redisStoreStopsAskingRedisAfterAFailure() throws IOException {
+        when(configManager.getReconnectRateLimit()).thenReturn(3);
+
+        // Connections land in the backlog and are never answered, so every reply waits out the read timeout
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            ReconnectRateStore store = new RedisReconnectRateStore(
+                    new RespClient(silent.getInetAddress().getHostAddress(), silent.getLocalPort(), null), logger);
+            ReconnectRateLimiter limiter = new ReconnectRateLimiter(configManager, store);
+
+            assertTrue(limiter.tryAcquire(server));
+
+            // Straight to the local bucket, without waiting for another timeout
+            long start = System.nanoTime();
+            assertTrue(limiter.tryAcquire(server));
+            assertTrue(limiter.tryAcquire(server));
+            assertFalse(limiter.tryAcquire(server));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+
+            store.close();
+        }
+    }
+
+    private int acquireAlternating(ReconnectRateLimiter firstProxy, ReconnectRateLimiter secondProxy, int rounds) {
+        int allowed = 0;
+        for (int i = 0; i < rounds; i++) {
+            if (firstProxy.tryAcquire(server)) {
+                allowed++;
+            }
+            if (secondProxy.tryAcquire(server)) {
+                allowed++;
+            }
+        }
+
+        return allowed;
+    }
+
+    private static RegisteredServer mockServer(String name) {
+        RegisteredServer server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn(name);
+        return server;
+    }
+}
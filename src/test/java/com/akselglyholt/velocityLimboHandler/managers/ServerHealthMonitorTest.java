@@ -0,0 +1,108 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerHealthMonitorTest {
+    private static final int THRESHOLD = 2;
+
+    @Test
+    void healthRecord_changesStateOnlyAfterThresholdObservationsInARow() {
+        ServerHealthMonitor.HealthRecord record = new ServerHealthMonitor.HealthRecord();
+
+        // The first observation is taken as-is
+        assertEquals(ServerHealth.UNKNOWN, record.observe(ServerHealth.UP, 5, THRESHOLD));
+        assertEquals(ServerHealth.UP, record.state());
+
+        // One dropped ping followed by a good one doesn't flap the server
+        assertNull(record.observe(ServerHealth.DOWN, -1, THRESHOLD));
+        assertNull(record.observe(ServerHealth.UP, 5, THRESHOLD));
+        assertEquals(ServerHealth.UP, record.state());
+
+        assertNull(record.observe(ServerHealth.DOWN, -1, THRESHOLD));
+        assertEquals(ServerHealth.UP, record.observe(ServerHealth.DOWN, -1, THRESHOLD));
+        assertEquals(ServerHealth.DOWN, record.state());
+    }
+
+    @Test
+    void healthRecord_keepsFreeSlotsWhileAChangeIsUnconfirmed() {
+        ServerHealthMonitor.HealthRecord record = new ServerHealthMonitor.HealthRecord();
+        record.observe(ServerHealth.UP, 5, THRESHOLD);
+
+        record.observe(ServerHealth.DOWN, -1, THRESHOLD);
+        assertEquals(5, record.freeSlots());
+
+        record.observe(ServerHealth.UP, 7, THRESHOLD);
+        record.observe(ServerHealth.FULL, 0, THRESHOLD);
+        assertEquals(7, record.freeSlots());
+
+        record.observe(ServerHealth.FULL, 0, THRESHOLD);
+        assertEquals(ServerHealth.FULL, record.state());
+        assertEquals(0, record.freeSlots());
+    }
+
+    @Test
+    void healthRecord_maintenanceAndDownKeepTheLastPlayerCount() {
+        ServerHealthMonitor.HealthRecord firstSeenInMaintenance = new ServerHealthMonitor.HealthRecord();
+        firstSeenInMaintenance.observe(ServerHealth.MAINTENANCE, -1, THRESHOLD);
+        assertEquals(Integer.MAX_VALUE, firstSeenInMaintenance.freeSlots());
+
+        ServerHealthMonitor.HealthRecord record = new ServerHealthMonitor.HealthRecord();
+        record.observe(ServerHealth.UP, 3, THRESHOLD);
+        record.observe(ServerHealth.MAINTENANCE, -1, THRESHOLD);
+        record.observe(ServerHealth.MAINTENANCE, -1, THRESHOLD);
+
+        assertEquals(ServerHealth.MAINTENANCE, record.state());
+        assertEquals(3, record.freeSlots());
+    }
+
+    @Test
+    void healthRecord_startsRecoveryOnTheFirstUpPingAfterAnOutage() {
+        ServerHealthMonitor.HealthRecord record = new ServerHealthMonitor.HealthRecord();
+        record.observe(ServerHealth.UP, 5, THRESHOLD);
+        assertFalse(record.takeRecovery());
+
+        record.observe(ServerHealth.DOWN, -1, THRESHOLD);
+        record.observe(ServerHealth.DOWN, -1, THRESHOLD);
+        assertFalse(record.takeRecovery());
+
+        // Not confirmed yet, but the wake-up doesn't wait for that
+        assertNull(record.observe(ServerHealth.UP, 5, THRESHOLD));
+        assertEquals(ServerHealth.DOWN, record.state());
+        assertTrue(record.takeRecovery());
+
+        // The confirming ping doesn't start another one
+        assertEquals(ServerHealth.DOWN, record.observe(ServerHealth.UP, 5, THRESHOLD));
+        assertFalse(record.takeRecovery());
+    }
+
+    @Test
+    void healthRecord_pingsADownServerLessAndLessOften() {
+        long interval = 1000;
+        long max = 4000;
+        ServerHealthMonitor.HealthRecord record = new ServerHealthMonitor.HealthRecord();
+        record.observe(ServerHealth.DOWN, -1, THRESHOLD);
+
+        record.scheduleNextPing(0, interval, max);
+        assertFalse(record.isPingDue(interval));
+        assertTrue(record.isPingDue(2 * interval));
+
+        record.scheduleNextPing(2 * interval, interval, max);
+        assertFalse(record.isPingDue(4 * interval));
+        assertTrue(record.isPingDue(6 * interval));
+
+        // Capped at the maximum delay
+        record.scheduleNextPing(6 * interval, interval, max);
+        assertTrue(record.isPingDue(10 * interval));
+
+        // Back to every run as soon as the server answers again, so the recovery is confirmed quickly
+        record.observe(ServerHealth.UP, 5, THRESHOLD);
+        assertEquals(ServerHealth.DOWN, record.state());
+        record.scheduleNextPing(10 * interval, interval, max);
+        assertTrue(record.isPingDue(10 * interval));
+    }
+}
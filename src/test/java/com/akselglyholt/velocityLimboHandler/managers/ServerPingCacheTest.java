@@ -0,0 +1,82 @@
+package com.akselglyholt.velocityLimboHandler.managers;
+
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ServerPingCacheTest {
+    private ConfigManager configManager;
+    private RegisteredServer server;
+    private ServerPingCache pingCache;
+
+    @BeforeEach
+    void setUp() {
+        configManager = mock(ConfigManager.class);
+        when(configManager.getPingCacheTtl()).thenReturn(60_000);
+
+        server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn("survival");
+
+        pingCache = new ServerPingCache(configManager);
+    }
+
+    @Test
+    void ping_concurrentCallersShareThePingInFlight() {
+        CompletableFuture<ServerPing> reply = new CompletableFuture<>();
+        when(server.ping()).thenReturn(reply);
+
+        CompletableFuture<ServerPing> first = pingCache.ping(server);
+        CompletableFuture<ServerPing> second = pingCache.ping(server);
+
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        verify(server, times(1)).ping();
+
+        ServerPing ping = mock(ServerPing.class);
+        reply.complete(ping);
+        assertSame(ping, first.join());
+    }
+
+    @Test
+    void ping_reusesACompletedPingUntilTheTtlHasPassed() {
+        when(server.ping()).thenAnswer(invocation -> CompletableFuture.completedFuture(mock(ServerPing.class)));
+
+        CompletableFuture<ServerPing> first = pingCache.ping(server);
+        assertSame(first, pingCache.ping(server));
+        verify(server, times(1)).ping();
+
+        when(configManager.getPingCacheTtl()).thenReturn(0);
+        assertNotSame(first, pingCache.ping(server));
+        verify(server, times(2)).ping();
+    }
+
+    @Test
+    void ping_completesExceptionallyWhenThePingThrows() {
+        when(server.ping()).thenThrow(new IllegalStateException("not connected"));
+
+        CompletableFuture<ServerPing> failed = pingCache.ping(server);
+        assertTrue(failed.isCompletedExceptionally());
+
+        // The failure is cached like any other result and then retried, rather than staying in flight forever
+        assertSame(failed, pingCache.ping(server));
+        when(configManager.getPingCacheTtl()).thenReturn(0);
+        assertNotSame(failed, pingCache.ping(server));
+        verify(server, times(2)).ping();
+    }
+}
@@ -0,0 +1,424 @@
+package com.akselglyholt.velocityLimboHandler.misc;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-process stand-in for Redis that speaks enough of the protocol for {@link RespClient} users: strings and hashes
+ * with expiry, counters and sorted sets. Every connection gets its own thread and all commands run under one lock,
+ * which matches Redis executing commands one at a time.
+ * <p>
+ * {@code EVAL} runs the script itself with LuaJ, with {@code redis.call} going to the same commands, so tests exercise
+ * the Lua that production sends.
+ */
+public final class FakeRedisServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Long> expiresAtMillis = new HashMap<>();
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Map<String, Double>> sortedSets = new HashMap<>();
+    private final Thread acceptThread;
+    private volatile long clockOffsetMillis;
+    private volatile Long stoppedAtMillis;
+
+    public FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptThread = new Thread(this::acceptLoop, "fake-redis-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Moves the server's clock forward, so keys with an expiry can be expired without sleeping.
+     */
+    public void advanceClock(long millis) {
+        clockOffsetMillis += millis;
+    }
+
+    /**
+     * Stops the server's clock, so it only moves through {@link #advanceClock}.
+     */
+    public void stopClock() {
+        stoppedAtMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connectionThread = new Thread(() -> serve(socket), "fake-redis-connection");
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+
+                String reply;
+                synchronized (this) {
+                    reply = execute(command);
+                }
+                out.write(reply.getBytes(StandardCharsets.UTF_8));
+                // Only flush once the client has sent everything it pipelined
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException ignored) {
+            // Client went away
+        }
+    }
+
+    private String execute(List<String> command) {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        return switch (name) {
+            case "AUTH", "PING" -> "+OK\r\n";
+            case "SET" -> {
+                String key = command.get(1);
+                strings.put(key, command.get(2));
+                expiresAtMillis.remove(key);
+                if (command.size() >= 5 && command.get(3).equalsIgnoreCase("PX")) {
+                    expiresAtMillis.put(key, now() + Long.parseLong(command.get(4)));
+                }
+                yield "+OK\r\n";
+            }
+            case "GET" -> bulk(liveString(command.get(1)));
+            case "EXISTS" -> integer(exists(command.get(1)) ? 1 : 0);
+            case "DEL" -> {
+                String key = command.get(1);
+                boolean existed = strings.remove(key) != null | hashes.remove(key) != null | sortedSets.remove(key) != null;
+                expiresAtMillis.remove(key);
+                yield integer(existed ? 1 : 0);
+            }
+            case "INCR" -> integer(incrementBy(command.get(1), 1));
+            case "INCRBY" -> integer(incrementBy(command.get(1), Long.parseLong(command.get(2))));
+            case "PEXPIRE" -> expire(command.get(1), Long.parseLong(command.get(2)));
+            case "EXPIRE" -> expire(command.get(1), Long.parseLong(command.get(2)) * 1000);
+            case "PTTL" -> {
+                String key = command.get(1);
+                if (!exists(key)) {
+                    yield integer(-2);
+                }
+                Long expiresAt = expiresAtMillis.get(key);
+                yield integer(expiresAt == null ? -1 : expiresAt - now());
+            }
+            case "TIME" -> {
+                long micros = now() * 1000;
+                yield "*2\r\n" + bulk(String.valueOf(micros / 1_000_000)) + bulk(String.valueOf(micros % 1_000_000));
+            }
+            case "HSET" -> {
+                expireIfDue(command.get(1));
+                Map<String, String> hash = hashes.computeIfAbsent(command.get(1), key -> new HashMap<>());
+                int added = 0;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (hash.put(command.get(i), command.get(i + 1)) == null) {
+                        added++;
+                    }
+                }
+                yield integer(added);
+            }
+            case "HMGET" -> {
+                expireIfDue(command.get(1));
+                Map<String, String> hash = hashes.getOrDefault(command.get(1), Map.of());
+                StringBuilder reply = new StringBuilder("*").append(command.size() - 2).append("\r\n");
+                for (int i = 2; i < command.size(); i++) {
+                    reply.append(bulk(hash.get(command.get(i))));
+                }
+                yield reply.toString();
+            }
+            case "ZADD" -> {
+                Map<String, Double> set = sortedSets.computeIfAbsent(command.get(1), key -> new HashMap<>());
+                int added = 0;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (set.put(command.get(i + 1), Double.parseDouble(command.get(i))) == null) {
+                        added++;
+                    }
+                }
+                yield integer(added);
+            }
+            case "ZREM" -> {
+                Map<String, Double> set = sortedSets.get(command.get(1));
+                int removed = 0;
+                for (int i = 2; set != null && i < command.size(); i++) {
+                    if (set.remove(command.get(i)) != null) {
+                        removed++;
+                    }
+                }
+                if (set != null && set.isEmpty()) {
+                    sortedSets.remove(command.get(1));
+                }
+                yield integer(removed);
+            }
+            case "ZRANGE" -> {
+                Map<String, Double> set = sortedSets.getOrDefault(command.get(1), Map.of());
+                boolean withScores = command.size() > 4 && command.get(4).equalsIgnoreCase("WITHSCORES");
+                List<String> members = sortedMembers(command.get(1));
+                int start = Integer.parseInt(command.get(2));
+                int stop = Integer.parseInt(command.get(3));
+                if (stop < 0) {
+                    stop = members.size() + stop;
+                }
+                List<String> range = start >= members.size() || start > stop
+                        ? List.of()
+                        : members.subList(start, Math.min(stop + 1, members.size()));
+                StringBuilder reply = new StringBuilder("*").append(withScores ? range.size() * 2 : range.size()).append("\r\n");
+                for (String member : range) {
+                    reply.append(bulk(member));
+                    if (withScores) {
+                        reply.append(bulk(formatScore(set.get(member))));
+                    }
+                }
+                yield reply.toString();
+            }
+            case "ZCARD" -> integer(sortedMembers(command.get(1)).size());
+            case "EVAL" -> {
+                int keyCount = Integer.parseInt(command.get(2));
+                yield eval(command.get(1), command.subList(3, 3 + keyCount), command.subList(3 + keyCount, command.size()));
+            }
+            default -> "-ERR unknown command '" + name + "'\r\n";
+        };
+    }
+
+    private long incrementBy(String key, long delta) {
+        String current = liveString(key);
+        long value = (current == null ? 0 : Long.parseLong(current)) + delta;
+        strings.put(key, String.valueOf(value));
+        return value;
+    }
+
+    private String eval(String script, List<String> keys, List<String> args) {
+        Globals globals = JsePlatform.standardGlobals();
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                List<String> command = new ArrayList<>(varargs.narg());
+                for (int i = 1; i <= varargs.narg(); i++) {
+                    command.add(varargs.arg(i).tojstring());
+                }
+
+                return new ReplyParser(execute(command)).next();
+            }
+        });
+        globals.set("redis", redis);
+        globals.set("KEYS", luaList(keys));
+        globals.set("ARGV", luaList(args));
+
+        try {
+            return toReply(globals.load(script, "script").call());
+        } catch (LuaError e) {
+            return "-ERR " + e.getMessage().replace('\r', ' ').replace('\n', ' ') + "\r\n";
+        }
+    }
+
+    private static LuaTable luaList(List<String> values) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < values.size(); i++) {
+            table.set(i + 1, LuaValue.valueOf(values.get(i)));
+        }
+        return table;
+    }
+
+    // Converts a script's return value the way Redis does: numbers are truncated to integers, false becomes nil
+    private static String toReply(LuaValue value) {
+        return switch (value.type()) {
+            case LuaValue.TNUMBER -> integer(value.tolong());
+            case LuaValue.TSTRING -> bulk(value.tojstring());
+            case LuaValue.TBOOLEAN -> value.toboolean() ? integer(1) : bulk(null);
+            case LuaValue.TTABLE -> {
+                StringBuilder reply = new StringBuilder("*").append(value.length()).append("\r\n");
+                for (int i = 1; i <= value.length(); i++) {
+                    reply.append(toReply(value.get(i)));
+                }
+                yield reply.toString();
+            }
+            default -> bulk(null);
+        };
+    }
+
+    // Turns a reply into the value redis.call hands to a script; an error reply raises a Lua error like in Redis
+    private static final class ReplyParser {
+        private final String reply;
+        private int position;
+
+        ReplyParser(String reply) {
+            this.reply = reply;
+        }
+
+        LuaValue next() {
+            char type = reply.charAt(position);
+            int end = reply.indexOf("\r\n", position);
+            String line = reply.substring(position + 1, end);
+            position = end + 2;
+
+            return switch (type) {
+                case '+' -> {
+                    LuaTable status = new LuaTable();
+                    status.set("ok", line);
+                    yield status;
+                }
+                case '-' -> throw new LuaError(line);
+                case ':' -> LuaValue.valueOf(Long.parseLong(line));
+                case '$' -> {
+                    int length = Integer.parseInt(line);
+                    if (length < 0) {
+                        yield LuaValue.FALSE;
+                    }
+                    // Replies here are ASCII, so characters and bytes line up
+                    String value = reply.substring(position, position + length);
+                    position += length + 2;
+                    yield LuaValue.valueOf(value);
+                }
+                case '*' -> {
+                    LuaTable items = new LuaTable();
+                    int count = Integer.parseInt(line);
+                    for (int i = 1; i <= count; i++) {
+                        items.set(i, next());
+                    }
+                    yield items;
+                }
+                default -> throw new LuaError("Unexpected reply: " + reply);
+            };
+        }
+    }
+
+    private String expire(String key, long millis) {
+        if (!exists(key)) {
+            return integer(0);
+        }
+
+        expiresAtMillis.put(key, now() + millis);
+        return integer(1);
+    }
+
+    private String liveString(String key) {
+        expireIfDue(key);
+        return strings.get(key);
+    }
+
+    private boolean exists(String key) {
+        expireIfDue(key);
+        return strings.containsKey(key) || hashes.containsKey(key) || sortedSets.containsKey(key);
+    }
+
+    private void expireIfDue(String key) {
+        Long expiresAt = expiresAtMillis.get(key);
+        if (expiresAt != null && expiresAt <= now()) {
+            strings.remove(key);
+            hashes.remove(key);
+            sortedSets.remove(key);
+            expiresAtMillis.remove(key);
+        }
+    }
+
+    private List<String> sortedMembers(String key) {
+        Map<String, Double> set = sortedSets.getOrDefault(key, Map.of());
+        List<String> members = new ArrayList<>(set.keySet());
+        members.sort(Comparator.<String, Double>comparing(set::get).thenComparing(Comparator.naturalOrder()));
+        return members;
+    }
+
+    // Like Redis, whole scores are written without a fraction
+    private static String formatScore(double score) {
+        return score == Math.rint(score) ? String.valueOf((long) score) : String.valueOf(score);
+    }
+
+    private long now() {
+        Long stoppedAt = stoppedAtMillis;
+        return (stoppedAt != null ? stoppedAt : System.currentTimeMillis()) + clockOffsetMillis;
+    }
+
+    private static String integer(long value) {
+        return ":" + value + "\r\n";
+    }
+
+    private static String bulk(String value) {
+        if (value == null) {
+            return "$-1\r\n";
+        }
+
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Expected an array");
+        }
+
+        int count = Integer.parseInt(readLine(in));
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected a bulk string");
+            }
+
+            int length = Integer.parseInt(readLine(in));
+            args.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+            readLine(in);
+        }
+
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new IOException("Connection closed");
+            }
+            line.append((char) b);
+        }
+        in.read();
+        return line.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package com.akselglyholt.velocityLimboHandler.misc;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MaintenanceStatusCacheTest {
+    private ProxyServer proxyServer;
+    private FakeMaintenanceApi maintenanceApi;
+
+    @BeforeEach
+    void setUp() {
+        proxyServer = mock(ProxyServer.class);
+        List<RegisteredServer> servers = List.of(mockServer("lobby"), mockServer("survival"));
+        when(proxyServer.getAllServers()).thenReturn(servers);
+
+        maintenanceApi = new FakeMaintenanceApi();
+    }
+
+    @Test
+    void isInMaintenance_readsSnapshotUntilRefreshed() {
+        maintenanceApi.serversInMaintenance.add("survival");
+        MaintenanceStatusCache cache = new MaintenanceStatusCache(proxyServer, maintenanceApi, Logger.getLogger("test"));
+
+        assertTrue(cache.isInMaintenance("survival"));
+        assertFalse(cache.isInMaintenance("lobby"));
+
+        maintenanceApi.serversInMaintenance.clear();
+        assertTrue(cache.isInMaintenance("survival"));
+
+        cache.refresh();
+        assertFalse(cache.isInMaintenance("survival"));
+    }
+
+    @Test
+    void isInMaintenance_globalMaintenanceCoversEveryServer() {
+        maintenanceApi.global = true;
+        MaintenanceStatusCache cache = new MaintenanceStatusCache(proxyServer, maintenanceApi, Logger.getLogger("test"));
+
+        assertTrue(cache.isInMaintenance("lobby"));
+        assertTrue(cache.isInMaintenance("survival"));
+    }
+
+    @Test
+    void isWhitelisted_readsWhitelistSnapshot() {
+        UUID whitelisted = UUID.randomUUID();
+        maintenanceApi.settings.whitelistedPlayers.put(whitelisted, "tester");
+        MaintenanceStatusCache cache = new MaintenanceStatusCache(proxyServer, maintenanceApi, Logger.getLogger("test"));
+
+        assertTrue(cache.isWhitelisted(whitelisted));
+        assertFalse(cache.isWhitelisted(UUID.randomUUID()));
+
+        maintenanceApi.settings.whitelistedPlayers.clear();
+        cache.refresh();
+        assertFalse(cache.isWhitelisted(whitelisted));
+    }
+
+    @Test
+    void changeEvent_refreshesTheSnapshotStraightAway() {
+        FakeEventManager eventManager = new FakeEventManager();
+        maintenanceApi.eventManager = eventManager;
+        List<LogRecord> warnings = new ArrayList<>();
+        MaintenanceStatusCache cache = new MaintenanceStatusCache(proxyServer, maintenanceApi, capturing(warnings),
+                FakeChangeEvent.class.getName(), "eu.example.MissingEvent");
+
+        assertEquals(List.of(FakeChangeEvent.class), eventManager.eventClasses);
+        assertTrue(warnings.isEmpty());
+        assertFalse(cache.isInMaintenance("survival"));
+
+        maintenanceApi.serversInMaintenance.add("survival");
+        eventManager.listeners.get(0).onEvent(new FakeChangeEvent());
+
+        assertTrue(cache.isInMaintenance("survival"));
+    }
+
+    @Test
+    void changeEvent_warnsAndFallsBackToPollingWhenTheListenerIsNotAnInterface() {
+        AbstractListenerEventManager eventManager = new AbstractListenerEventManager();
+        maintenanceApi.eventManager = eventManager;
+        List<LogRecord> warnings = new ArrayList<>();
+        MaintenanceStatusCache cache = new MaintenanceStatusCache(proxyServer, maintenanceApi, capturing(warnings),
+                FakeChangeEvent.class.getName());
+
+        assertEquals(0, eventManager.registrations);
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).getMessage().contains("not an interface"));
+
+        maintenanceApi.serversInMaintenance.add("survival");
+        cache.run();
+        assertTrue(cache.isInMaintenance("survival"));
+    }
+
+    @Test
+    void changeEvent_warnsWhenNoneOfTheEventsExist() {
+        maintenanceApi.eventManager = new FakeEventManager();
+        List<LogRecord> warnings = new ArrayList<>();
+        new MaintenanceStatusCache(proxyServer, maintenanceApi, capturing(warnings), "eu.example.MissingEvent");
+
+        assertEquals(1, warnings.size());
+    }
+
+    private Logger capturing(List<LogRecord> warnings) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING) {
+                    warnings.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return logger;
+    }
+
+    private RegisteredServer mockServer(String name) {
+        RegisteredServer server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn(name);
+        return server;
+    }
+
+    public static class FakeMaintenanceApi {
+        private final Set<String> serversInMaintenance = new HashSet<>();
+        private final FakeSettings settings = new FakeSettings();
+        private boolean global;
+        private Object eventManager;
+
+        public boolean isMaintenance() {
+            return global;
+        }
+
+        public boolean isMaintenance(String serverName) {
+            return serversInMaintenance.contains(serverName);
+        }
+
+        public FakeSettings getSettings() {
+            return settings;
+        }
+
+        public Object getEventManager() {
+            if (eventManager == null) {
+                throw new UnsupportedOperationException("no event manager");
+            }
+            return eventManager;
+        }
+    }
+
+    public static class FakeSettings {
+        private final Map<UUID, String> whitelistedPlayers = new HashMap<>();
+
+        public Map<UUID, String> getWhitelistedPlayers() {
+            return whitelistedPlayers;
+        }
+    }
+
+    public interface FakeListener {
+        void onEvent(Object event);
+    }
+
+    public abstract static class AbstractFakeListener {
+        public abstract void onEvent(Object event);
+    }
+
+    public static class FakeChangeEvent {
+    }
+
+    public static class FakeEventManager {
+        private final List<FakeListener> listeners = new ArrayList<>();
+        private final List<Class<?>> eventClasses = new ArrayList<>();
+
+        public void registerListener(FakeListener listener, Class<?> eventClass) {
+            listeners.add(listener);
+            eventClasses.add(eventClass);
+        }
+    }
+
+    public static class AbstractListenerEventManager {
+        private int registrations;
+
+        public void registerListener(AbstractFakeListener listener, Class<?> eventClass) {
+            registrations++;
+        }
+    }
+}
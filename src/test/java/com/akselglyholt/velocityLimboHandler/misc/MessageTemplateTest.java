@@ -0,0 +1,36 @@
+package com.akselglyholt.velocityLimboHandler.misc;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageTemplateTest {
+
+    @Test
+    void render_fillsInQueuePosition() {
+        MessageTemplate template = MessageTemplate.compile("<yellow>Queue position: [queue-position]");
+
+        assertTrue(template.hasQueuePosition());
+        assertEquals("Queue position: 7", plain(template.render(7)));
+        assertEquals("Queue position: 12", plain(template.render(() -> 12)));
+    }
+
+    @Test
+    void render_withoutPlaceholder_sharesComponentAndSkipsLookup() {
+        MessageTemplate template = MessageTemplate.compile("<red>You are banned from that server.</red>");
+
+        assertFalse(template.hasQueuePosition());
+        assertSame(template.render(1), template.render(() -> {
+            throw new AssertionError("position should not be looked up");
+        }));
+    }
+
+    private static String plain(Component component) {
+        return PlainTextComponentSerializer.plainText().serialize(component);
+    }
+}
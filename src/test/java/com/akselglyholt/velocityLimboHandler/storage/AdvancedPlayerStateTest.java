@@ -4,6 +4,9 @@ import com.akselglyholt.velocityLimboHandler.VelocityLimboHandler;
 import com.akselglyholt.velocityLimboHandler.auth.AuthManager;
 import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
 import com.akselglyholt.velocityLimboHandler.managers.ReconnectHandler;
+import com.akselglyholt.velocityLimboHandler.managers.ServerHealthMonitor;
+import com.akselglyholt.velocityLimboHandler.managers.ServerPingCache;
+import com.akselglyholt.velocityLimboHandler.misc.MaintenanceStatusCache;
 import com.akselglyholt.velocityLimboHandler.misc.ReconnectBlocker;
 import com.akselglyholt.velocityLimboHandler.misc.Utility;
 import com.akselglyholt.velocityLimboHandler.tasks.ReconnectionTask;
@@ -122,6 +125,10 @@ class AdvancedPlayerStateTest {
         assertSame(active, next);
 
         playerManager.removePlayerFromQueue(active);
+        // The missing player's entry still counts until stale entries are cleaned up
+        assertTrue(playerManager.hasQueuedPlayers(server));
+
+        playerManager.pruneInactivePlayers();
         assertFalse(playerManager.hasQueuedPlayers(server));
     }
 
@@ -165,9 +172,11 @@ class AdvancedPlayerStateTest {
         UUID playerId = UUID.randomUUID();
         Player player = mockPlayer(playerId, true);
 
+        // The whitelist is read into the maintenance status cache's snapshot when the cache is built
+        MaintenanceStatusCache statusCache = new MaintenanceStatusCache(
+                proxyServer, new FakeMaintenanceApi(Map.of(playerId, "tester")), logger);
         mockedVelocityLimboHandler.when(VelocityLimboHandler::hasMaintenancePlugin).thenReturn(true);
-        mockedVelocityLimboHandler.when(VelocityLimboHandler::getMaintenanceAPI)
-                .thenReturn(new FakeMaintenanceApi(Map.of(playerId, "tester")));
+        mockedVelocityLimboHandler.when(VelocityLimboHandler::getMaintenanceStatusCache).thenReturn(statusCache);
 
         assertTrue(Utility.playerMaintenanceWhitelisted(player));
         assertFalse(Utility.playerMaintenanceWhitelisted(mockPlayer(UUID.randomUUID(), true)));
@@ -215,7 +224,8 @@ class AdvancedPlayerStateTest {
                 playerManager,
                 authManager,
                 configManager,
-                reconnectHandler
+                reconnectHandler,
+                new ServerHealthMonitor(proxyServer, new ServerPingCache(configManager), configManager)
         );
 
         task.run();
@@ -252,7 +262,8 @@ class AdvancedPlayerStateTest {
                 playerManager,
                 authManager,
                 configManager,
-                reconnectHandler
+                reconnectHandler,
+                new ServerHealthMonitor(proxyServer, new ServerPingCache(configManager), configManager)
         );
 
         task.run();
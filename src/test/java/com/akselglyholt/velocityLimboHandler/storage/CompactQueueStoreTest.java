@@ -0,0 +1,104 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactQueueStoreTest {
+
+    @Test
+    void add_keepsInsertionOrderAndRejectsDuplicates() {
+        CompactQueueStore store = new CompactQueueStore();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertTrue(store.add(first));
+        assertTrue(store.add(second));
+        assertFalse(store.add(first));
+
+        assertEquals(List.of(first, second), new ArrayList<>(store));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void remove_updatesRanksAndContains() {
+        CompactQueueStore store = new CompactQueueStore();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        store.add(first);
+        store.add(second);
+        store.add(third);
+
+        assertTrue(store.remove(second));
+        assertFalse(store.remove(second));
+
+        assertFalse(store.contains(second));
+        assertEquals(1, store.rank(first));
+        assertEquals(2, store.rank(third));
+        assertEquals(-1, store.rank(second));
+    }
+
+    @Test
+    void iteratorRemove_dropsEntry() {
+        CompactQueueStore store = new CompactQueueStore();
+        UUID kept = UUID.randomUUID();
+        UUID dropped = UUID.randomUUID();
+        store.add(dropped);
+        store.add(kept);
+
+        Iterator<UUID> iterator = store.iterator();
+        assertEquals(dropped, iterator.next());
+        iterator.remove();
+
+        assertEquals(List.of(kept), new ArrayList<>(store));
+        assertEquals(1, store.rank(kept));
+    }
+
+    @Test
+    void collidingIds_stayFindableAcrossRemovalsAndCompaction() {
+        CompactQueueStore store = new CompactQueueStore();
+        List<UUID> players = new ArrayList<>();
+
+        // Same most significant bits and small least significant bits, so many players probe the same entries
+        for (int i = 0; i < 1_000; i++) {
+            UUID playerId = new UUID(7L, i);
+            players.add(playerId);
+            store.add(playerId);
+
+            if (i % 3 == 0) {
+                assertTrue(store.remove(players.remove(0)));
+            }
+        }
+
+        assertEquals(players.size(), store.size());
+        for (int i = 0; i < players.size(); i++) {
+            assertEquals(i + 1, store.rank(players.get(i)));
+        }
+        assertEquals(players, new ArrayList<>(store));
+    }
+
+    @Test
+    void serverQueue_behavesTheSameWithCompactStore() {
+        ServerQueue queue = new ServerQueue(CompactQueueStore::new);
+        UUID normal = UUID.randomUUID();
+        UUID bypass = UUID.randomUUID();
+
+        queue.enqueue(normal, QueueTier.NORMAL);
+        queue.enqueue(bypass, QueueTier.BYPASS);
+
+        assertEquals(1, queue.getQueuePosition(bypass));
+        assertEquals(2, queue.getQueuePosition(normal));
+
+        queue.remove(bypass);
+        assertEquals(1, queue.getQueuePosition(normal));
+        assertEquals(1, queue.size());
+    }
+}
@@ -131,6 +131,33 @@ class PlayerManagerIntegrationTest {
         assertFalse(playerManager.hasConnectionIssue(stale));
     }
 
+    @Test
+    void sweepInactivePlayers_visitsAtMostBudgetPlayersPerCall() {
+        RegisteredServer survival = mockServer("survival");
+        Player active = mockPlayer(UUID.randomUUID(), "Active", true);
+        Player firstStale = mockPlayer(UUID.randomUUID(), "FirstStale", true);
+        Player secondStale = mockPlayer(UUID.randomUUID(), "SecondStale", true);
+
+        playerManager.addPlayer(active, survival);
+        playerManager.addPlayer(firstStale, survival);
+        playerManager.addPlayer(secondStale, survival);
+
+        when(proxyServer.getPlayer(firstStale.getUniqueId())).thenReturn(Optional.empty());
+        when(proxyServer.getPlayer(secondStale.getUniqueId())).thenReturn(Optional.empty());
+
+        // One player per call, so a full pass takes three calls
+        int removed = 0;
+        for (int i = 0; i < 3; i++) {
+            removed += playerManager.sweepInactivePlayers(1);
+        }
+
+        assertEquals(2, removed);
+        assertTrue(playerManager.isPlayerRegistered(active));
+        assertFalse(playerManager.isPlayerRegistered(firstStale));
+        assertFalse(playerManager.isPlayerRegistered(secondStale));
+        assertEquals(1, playerManager.getQueuePosition(active));
+    }
+
     private RegisteredServer mockServer(String serverName) {
         RegisteredServer server = mock(RegisteredServer.class);
         ServerInfo serverInfo = mock(ServerInfo.class);
@@ -0,0 +1,76 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueuePersistenceTest {
+    private static final Logger logger = Logger.getLogger("QueuePersistenceTest");
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void restore_replaysJournalWrittenBeforeACrash() throws IOException {
+        QueuePersistence persistence = new QueuePersistence(dataDirectory, logger);
+        assertTrue(persistence.restore().isEmpty());
+
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        persistence.recordEnqueue(first, "survival", QueueTier.NORMAL);
+        persistence.recordEnqueue(removed, "survival", QueueTier.NORMAL);
+        persistence.recordEnqueue(second, "survival", QueueTier.NORMAL);
+        // Same server and tier again keeps the player's place
+        persistence.recordEnqueue(first, "survival", QueueTier.NORMAL);
+        persistence.recordRemove(removed);
+        persistence.flush();
+
+        assertEquals(List.of(
+                new QueuePersistence.Entry(first, "survival", QueueTier.NORMAL),
+                new QueuePersistence.Entry(second, "survival", QueueTier.NORMAL)
+        ), new QueuePersistence(dataDirectory, logger).restore());
+    }
+
+    @Test
+    void restore_appliesOnlyJournalEntriesAfterTheSnapshot() throws IOException {
+        QueuePersistence persistence = new QueuePersistence(dataDirectory, logger);
+        persistence.restore();
+
+        UUID snapshotted = UUID.randomUUID();
+        UUID journaled = UUID.randomUUID();
+        persistence.recordEnqueue(snapshotted, "lobby", QueueTier.NORMAL);
+        persistence.writeSnapshot(() -> List.of(new QueuePersistence.Entry(snapshotted, "lobby", QueueTier.NORMAL)));
+        persistence.recordEnqueue(journaled, "survival", QueueTier.BYPASS);
+        persistence.close();
+
+        assertEquals(List.of(
+                new QueuePersistence.Entry(snapshotted, "lobby", QueueTier.NORMAL),
+                new QueuePersistence.Entry(journaled, "survival", QueueTier.BYPASS)
+        ), new QueuePersistence(dataDirectory, logger).restore());
+    }
+
+    @Test
+    void restore_ignoresPartiallyWrittenJournalRecord() throws IOException {
+        QueuePersistence persistence = new QueuePersistence(dataDirectory, logger);
+        persistence.restore();
+
+        UUID playerId = UUID.randomUUID();
+        persistence.recordEnqueue(playerId, "survival", QueueTier.PRIORITY);
+        persistence.close();
+        Files.write(dataDirectory.resolve("queue-journal.bin"), new byte[]{1, 0, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(new QueuePersistence.Entry(playerId, "survival", QueueTier.PRIORITY)),
+                new QueuePersistence(dataDirectory, logger).restore());
+    }
+}
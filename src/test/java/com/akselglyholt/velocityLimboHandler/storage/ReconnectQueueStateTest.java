@@ -14,12 +14,17 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ReconnectQueueStateTest {
@@ -47,7 +52,30 @@ class ReconnectQueueStateTest {
     }
 
     @Test
-    void getQueuePosition_skipsAndRemovesStaleEntries() {
+    void getNextQueuedPlayers_returnsBatchInQueueOrderSkippingConnectingPlayers() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        RegisteredServer server = mockServer("survival");
+
+        Player first = mockPlayer(UUID.randomUUID(), "First", activePlayers);
+        Player connecting = mockPlayer(UUID.randomUUID(), "Connecting", activePlayers);
+        Player third = mockPlayer(UUID.randomUUID(), "Third", activePlayers);
+        Player fourth = mockPlayer(UUID.randomUUID(), "Fourth", activePlayers);
+
+        state.enqueue(first, server);
+        state.enqueue(connecting, server);
+        state.enqueue(third, server);
+        state.enqueue(fourth, server);
+
+        List<Player> batch = state.getNextQueuedPlayers(server, 2, connecting.getUniqueId()::equals);
+
+        assertEquals(List.of(first, third), batch);
+        assertTrue(state.getNextQueuedPlayers(server, 0, id -> false).isEmpty());
+    }
+
+    @Test
+    void getQueuePosition_excludesStaleEntriesOncePruned() {
         Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
         List<UUID> removedStale = new ArrayList<>();
         ReconnectQueueState state = new ReconnectQueueState(removedStale::add, activePlayers::get);
@@ -63,9 +91,14 @@ class ReconnectQueueStateTest {
         state.enqueue(target, server);
         state.enqueue(other, server);
 
-        int position = state.getQueuePosition(target.getUniqueId(), "survival");
+        // Positions are answered from the index alone, so the stale entry still counts until it is pruned.
+        assertEquals(2, state.getQueuePosition(target.getUniqueId(), "survival"));
+
+        state.pruneInactivePlayers();
 
-        assertEquals(1, position);
+        assertEquals(1, state.getQueuePosition(target.getUniqueId(), "survival"));
+        assertEquals(2, state.getQueuePosition(other.getUniqueId(), "survival"));
+        assertEquals(-1, state.getQueuePosition(stale.getUniqueId(), "survival"));
         assertTrue(removedStale.contains(stale.getUniqueId()));
         assertEquals(List.of(target.getUniqueId(), other.getUniqueId()),
                 state.getQueueForServer("survival").stream().map(PlayerManager.QueuedPlayer::uuid).toList());
@@ -103,6 +136,28 @@ class ReconnectQueueStateTest {
         }
     }
 
+    @Test
+    void findFirstMaintenanceAllowedPlayer_tracksEligibilityChangesAfterEnqueue() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        RegisteredServer server = mockServer("factions");
+
+        Player first = mockPlayer(UUID.randomUUID(), "First", activePlayers);
+        Player second = mockPlayer(UUID.randomUUID(), "Second", activePlayers);
+
+        when(second.hasPermission("maintenance.bypass")).thenReturn(true);
+        state.enqueue(first, server);
+        state.enqueue(second, server);
+
+        // First player is granted the bypass after they were queued, second loses it
+        when(first.hasPermission("maintenance.bypass")).thenReturn(true);
+        when(second.hasPermission("maintenance.bypass")).thenReturn(false);
+        assertSame(first, state.findFirstMaintenanceAllowedPlayer(server));
+        assertEquals(1, state.getQueuePosition(first.getUniqueId(), "factions"));
+        assertEquals(2, state.getQueuePosition(second.getUniqueId(), "factions"));
+    }
+
     @Test
     void pruneInactivePlayers_updatesCountsAndServerMap() {
         Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
@@ -128,6 +183,143 @@ class ReconnectQueueStateTest {
         assertEquals(Map.of("survival", 1, "factions", 1), state.getQueuedServerCounts());
     }
 
+    @Test
+    void enqueue_movesPlayerBetweenServersAndRemovePlayerClearsIt() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        RegisteredServer survival = mockServer("survival");
+        RegisteredServer factions = mockServer("factions");
+
+        Player player = mockPlayer(UUID.randomUUID(), "Mover", activePlayers);
+
+        state.enqueue(player, survival);
+        state.enqueue(player, factions);
+
+        assertEquals(Map.of("factions", 1), state.getQueuedServerCounts());
+        assertEquals(-1, state.getQueuePosition(player.getUniqueId(), "survival"));
+        assertEquals(1, state.getQueuePosition(player.getUniqueId(), "factions"));
+
+        state.removePlayer(player.getUniqueId());
+
+        assertEquals(0, state.getQueuedPlayerCount());
+    }
+
+    @Test
+    void restore_holdsPlacesOfOfflinePlayersUntilTheyReturn() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        RegisteredServer survival = mockServer("survival");
+        UUID returningId = UUID.randomUUID();
+        UUID offlineId = UUID.randomUUID();
+
+        state.restore(List.of(
+                new QueuePersistence.Entry(offlineId, "survival", QueueTier.NORMAL),
+                new QueuePersistence.Entry(returningId, "survival", QueueTier.NORMAL)
+        ), 60_000);
+
+        // Offline restored players are neither handed out nor dropped as stale
+        assertNull(state.getNextQueuedPlayer(survival));
+        state.pruneInactivePlayers();
+        assertEquals(2, state.getQueuedPlayerCount());
+
+        Player returning = mockPlayer(returningId, "Returning", activePlayers);
+        assertEquals("survival", state.claimReservation(returningId));
+        assertNull(state.claimReservation(returningId));
+        state.enqueue(returning, survival);
+
+        assertEquals(2, state.getQueuePosition(returningId, "survival"));
+        assertSame(returning, state.getNextQueuedPlayer(survival));
+    }
+
+    @Test
+    void restore_dropsUnclaimedPlacesAfterGracePeriod() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        List<UUID> removedStale = new ArrayList<>();
+        ReconnectQueueState state = new ReconnectQueueState(removedStale::add, activePlayers::get);
+        UUID offlineId = UUID.randomUUID();
+
+        state.restore(List.of(new QueuePersistence.Entry(offlineId, "survival", QueueTier.NORMAL)), 0);
+        state.pruneInactivePlayers();
+
+        assertFalse(state.isReserved(offlineId));
+        assertEquals(0, state.getQueuedPlayerCount());
+        assertEquals(List.of(offlineId), removedStale);
+    }
+
+    @Test
+    void snapshotEntries_listsPlayersInQueueOrder() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        RegisteredServer survival = mockServer("survival");
+
+        Player normal = mockPlayer(UUID.randomUUID(), "Normal", activePlayers);
+        Player bypass = mockPlayer(UUID.randomUUID(), "Bypass", activePlayers);
+        when(bypass.hasPermission("vlh.queue.bypass")).thenReturn(true);
+
+        state.enqueue(normal, survival);
+        state.enqueue(bypass, survival);
+
+        assertEquals(List.of(
+                new QueuePersistence.Entry(bypass.getUniqueId(), "survival", QueueTier.BYPASS),
+                new QueuePersistence.Entry(normal.getUniqueId(), "survival", QueueTier.NORMAL)
+        ), state.snapshotEntries());
+    }
+
+    @Test
+    void getNextQueuedPlayers_onlyReturnsPlayersTheBackendAdmits() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        QueueBackend backend = mock(QueueBackend.class);
+        state.setBackend(backend);
+        RegisteredServer survival = mockServer("survival");
+
+        Player first = mockPlayer(UUID.randomUUID(), "First", activePlayers);
+        Player second = mockPlayer(UUID.randomUUID(), "Second", activePlayers);
+        state.enqueue(first, survival);
+        state.enqueue(second, survival);
+        // Re-queueing into the same tier keeps the place, so the shared queue isn't touched again
+        state.enqueue(first, survival);
+
+        when(backend.admissible("survival", List.of(first.getUniqueId(), second.getUniqueId()), 2))
+                .thenReturn(List.of(second.getUniqueId()));
+
+        assertEquals(List.of(second), state.getNextQueuedPlayers(survival, 2, id -> false));
+        verify(backend, times(1)).enqueue("survival", first.getUniqueId(), QueueTier.NORMAL);
+
+        state.removePlayer(second.getUniqueId());
+        verify(backend).remove("survival", second.getUniqueId());
+    }
+
+    @Test
+    void restore_publishesRestoredPlayersToTheBackendOnlyOnceTheyReturn() {
+        Map<UUID, Player> activePlayers = new ConcurrentHashMap<>();
+        ReconnectQueueState state = new ReconnectQueueState(id -> {
+        }, activePlayers::get);
+        QueueBackend backend = mock(QueueBackend.class);
+        state.setBackend(backend);
+        RegisteredServer survival = mockServer("survival");
+        UUID returningId = UUID.randomUUID();
+        UUID offlineId = UUID.randomUUID();
+
+        state.restore(List.of(
+                new QueuePersistence.Entry(offlineId, "survival", QueueTier.NORMAL),
+                new QueuePersistence.Entry(returningId, "survival", QueueTier.NORMAL)
+        ), 60_000);
+
+        verify(backend, never()).enqueue(anyString(), any(UUID.class), any(QueueTier.class));
+
+        Player returning = mockPlayer(returningId, "Returning", activePlayers);
+        state.claimReservation(returningId);
+        state.enqueue(returning, survival);
+
+        verify(backend).enqueue("survival", returningId, QueueTier.NORMAL);
+        verify(backend, never()).enqueue("survival", offlineId, QueueTier.NORMAL);
+    }
+
     private RegisteredServer mockServer(String name) {
         RegisteredServer server = mock(RegisteredServer.class);
         ServerInfo info = mock(ServerInfo.class);
@@ -0,0 +1,159 @@
+package com.akselglyholt.velocityLimboHandler.storage;
+
+import com.akselglyholt.velocityLimboHandler.misc.FakeRedisServer;
+import com.akselglyholt.velocityLimboHandler.misc.RespClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisQueueBackendTest {
+    private static final Logger logger = Logger.getLogger("RedisQueueBackendTest");
+
+    private FakeRedisServer redis;
+    private RedisQueueBackend proxyA;
+    private RedisQueueBackend proxyB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redis = new FakeRedisServer();
+        proxyA = new RedisQueueBackend(new RespClient(redis.getHost(), redis.getPort(), ""), "proxy-a", logger);
+        proxyB = new RedisQueueBackend(new RespClient(redis.getHost(), redis.getPort(), ""), "proxy-b", logger);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        proxyA.close();
+        proxyB.close();
+        redis.close();
+    }
+
+    @Test
+    void admissible_onlyAdmitsPlayersAtTheFrontNetworkWide() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        proxyA.enqueue("survival", first, QueueTier.NORMAL);
+        proxyA.flush();
+        proxyB.enqueue("survival", second, QueueTier.NORMAL);
+        proxyB.flush();
+        proxyA.enqueue("survival", third, QueueTier.NORMAL);
+
+        assertEquals(List.of(first), proxyA.admissible("survival", List.of(first, third), 1));
+        // First is connecting now; second is next network-wide, ahead of third
+        assertTrue(proxyA.admissible("survival", List.of(third), 1).isEmpty());
+        assertEquals(List.of(second), proxyB.admissible("survival", List.of(second), 1));
+    }
+
+    @Test
+    void admissible_playersAlreadyConnectingDontTakeUpTheWindow() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        proxyA.enqueue("survival", first, QueueTier.NORMAL);
+        proxyA.enqueue("survival", second, QueueTier.NORMAL);
+        proxyA.enqueue("survival", third, QueueTier.NORMAL);
+
+        assertEquals(List.of(first, second), proxyA.admissible("survival", List.of(first, second), 2));
+        // The window shrank to one, and the connecting players must not fill it
+        assertEquals(List.of(third), proxyA.admissible("survival", List.of(third), 1));
+    }
+
+    @Test
+    void admissible_failedAttemptGetsItsPlaceBack() {
+        UUID failing = UUID.randomUUID();
+        UUID later = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+
+        proxyA.enqueue("survival", failing, QueueTier.NORMAL);
+        proxyA.flush();
+        proxyB.enqueue("survival", other, QueueTier.NORMAL);
+        proxyB.flush();
+        proxyA.enqueue("survival", later, QueueTier.NORMAL);
+
+        assertEquals(List.of(failing), proxyA.admissible("survival", List.of(failing), 1));
+
+        // The attempt failed, so the player is a candidate again and is back ahead of the other proxy's player
+        assertEquals(List.of(failing), proxyA.admissible("survival", List.of(failing, later), 1));
+        proxyA.remove("survival", failing);
+        proxyA.flush();
+
+        assertEquals(List.of(other), proxyB.admissible("survival", List.of(other), 1));
+    }
+
+    @Test
+    void admissible_ordersHigherTiersFirst() {
+        UUID normal = UUID.randomUUID();
+        UUID bypass = UUID.randomUUID();
+
+        proxyA.enqueue("survival", normal, QueueTier.NORMAL);
+        proxyA.flush();
+        proxyB.enqueue("survival", bypass, QueueTier.BYPASS);
+        proxyB.flush();
+
+        assertTrue(proxyA.admissible("survival", List.of(normal), 1).isEmpty());
+        assertEquals(List.of(bypass), proxyB.admissible("survival", List.of(bypass), 1));
+    }
+
+    @Test
+    void admissible_dropsEntriesOfProxiesWhoseHeartbeatExpired() {
+        UUID stranded = UUID.randomUUID();
+        UUID waiting = UUID.randomUUID();
+
+        proxyB.enqueue("survival", stranded, QueueTier.NORMAL);
+        proxyB.flush();
+        proxyA.enqueue("survival", waiting, QueueTier.NORMAL);
+        proxyA.flush();
+
+        // Proxy B stops without removing its players
+        redis.advanceClock(60_000);
+
+        assertEquals(List.of(waiting), proxyA.admissible("survival", List.of(waiting), 1));
+    }
+
+    @Test
+    void admissible_fallsBackToLocalQueueWhenRedisIsUnreachable() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        redis.close();
+
+        RedisQueueBackend backend = new RedisQueueBackend(new RespClient(redis.getHost(), redis.getPort(), ""), "proxy-c", logger);
+        backend.enqueue("survival", first, QueueTier.NORMAL);
+
+        assertEquals(List.of(first), backend.admissible("survival", List.of(first, second), 1));
+    }
+
+    @Test
+    void admissible_stopsWaitingOnRedisAfterAFailure() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        // Connections land in the backlog and are never answered, so every reply waits out the read timeout
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            RedisQueueBackend backend = new RedisQueueBackend(
+                    new RespClient(silent.getInetAddress().getHostAddress(), silent.getLocalPort(), ""), "proxy-c", logger);
+            backend.enqueue("survival", first, QueueTier.NORMAL);
+
+            // Only the flush waits for the timeout; reading the queue right after fails straight away
+            long start = System.nanoTime();
+            assertEquals(List.of(first), backend.admissible("survival", List.of(first, second), 1));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(3500));
+
+            start = System.nanoTime();
+            assertEquals(List.of(first), backend.admissible("survival", List.of(first, second), 1));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.akselglyholt.velocityLimboHandler.storage;
 
+import com.velocitypowered.api.proxy.Player;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class ServerQueueTest {
 
@@ -58,4 +66,152 @@ class ServerQueueTest {
         assertTrue(queue.isEmpty());
         assertEquals(0, queue.size());
     }
+
+    @Test
+    void getQueuePosition_countsHigherTiersAndTracksRemovals() {
+        ServerQueue queue = new ServerQueue();
+        UUID firstNormal = UUID.randomUUID();
+        UUID secondNormal = UUID.randomUUID();
+        UUID priority = UUID.randomUUID();
+        UUID bypass = UUID.randomUUID();
+
+        queue.enqueue(firstNormal, QueueTier.NORMAL);
+        queue.enqueue(secondNormal, QueueTier.NORMAL);
+        queue.enqueue(priority, QueueTier.PRIORITY);
+        queue.enqueue(bypass, QueueTier.BYPASS);
+
+        assertEquals(1, queue.getQueuePosition(bypass));
+        assertEquals(2, queue.getQueuePosition(priority));
+        assertEquals(3, queue.getQueuePosition(firstNormal));
+        assertEquals(4, queue.getQueuePosition(secondNormal));
+
+        queue.remove(firstNormal);
+
+        assertEquals(3, queue.getQueuePosition(secondNormal));
+        assertEquals(-1, queue.getQueuePosition(firstNormal));
+    }
+
+    @Test
+    void getQueuePositions_matchesSingleLookupsAndSkipsUnqueuedPlayers() {
+        ServerQueue queue = new ServerQueue();
+        UUID normal = UUID.randomUUID();
+        UUID priority = UUID.randomUUID();
+        UUID bypass = UUID.randomUUID();
+        UUID notQueued = UUID.randomUUID();
+
+        queue.enqueue(normal, QueueTier.NORMAL);
+        queue.enqueue(priority, QueueTier.PRIORITY);
+        queue.enqueue(bypass, QueueTier.BYPASS);
+
+        assertEquals(Map.of(bypass, 1, priority, 2, normal, 3),
+                queue.getQueuePositions(List.of(normal, priority, bypass, notQueued)));
+    }
+
+    @Test
+    void getQueuePosition_staysCorrectAcrossSlotCompaction() {
+        ServerQueue queue = new ServerQueue();
+        List<UUID> players = new ArrayList<>();
+
+        for (int i = 0; i < 1_000; i++) {
+            UUID playerId = UUID.randomUUID();
+            players.add(playerId);
+            queue.enqueue(playerId, QueueTier.NORMAL);
+
+            // Churn the head so slots are recycled several times.
+            if (i % 3 == 0) {
+                queue.remove(players.remove(0));
+            }
+        }
+
+        for (int i = 0; i < players.size(); i++) {
+            assertEquals(i + 1, queue.getQueuePosition(players.get(i)));
+        }
+    }
+
+    @Test
+    void findFirstMaintenanceEligible_runsChecksOutsideTheLock() throws Exception {
+        ServerQueue queue = new ServerQueue();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        Map<UUID, Player> players = Map.of(first, mockPlayer(first), second, mockPlayer(second));
+
+        queue.enqueue(first, QueueTier.NORMAL);
+        queue.enqueue(second, QueueTier.NORMAL);
+
+        // The first candidate disconnects from another thread while its checks are running
+        Player matched = queue.findFirstMaintenanceEligible(players::get, id -> {
+        }, player -> {
+            if (player.getUniqueId().equals(first)) {
+                Thread remover = new Thread(() -> queue.remove(first));
+                remover.start();
+                try {
+                    remover.join(1_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertFalse(remover.isAlive());
+            }
+            return true;
+        });
+
+        assertEquals(second, matched.getUniqueId());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void findFirstMaintenanceEligible_dropsStaleAndSkipsIneligibleEntries() {
+        ServerQueue queue = new ServerQueue();
+        UUID stale = UUID.randomUUID();
+        UUID revoked = UUID.randomUUID();
+        UUID allowed = UUID.randomUUID();
+        UUID regular = UUID.randomUUID();
+        Map<UUID, Player> players = Map.of(revoked, mockPlayer(revoked), allowed, mockPlayer(allowed),
+                regular, mockPlayer(regular));
+        List<UUID> removedStale = new ArrayList<>();
+
+        queue.enqueue(stale, QueueTier.BYPASS);
+        queue.enqueue(revoked, QueueTier.PRIORITY);
+        queue.enqueue(regular, QueueTier.PRIORITY);
+        queue.enqueue(allowed, QueueTier.NORMAL);
+
+        Player matched = queue.findFirstMaintenanceEligible(players::get, removedStale::add,
+                player -> player.getUniqueId().equals(allowed));
+
+        assertEquals(allowed, matched.getUniqueId());
+        assertEquals(List.of(stale), removedStale);
+        // Players that aren't allowed through keep their place in the queue
+        assertEquals(1, queue.getQueuePosition(revoked));
+        assertEquals(2, queue.getQueuePosition(regular));
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    void findFirstMaintenanceEligible_looksPastTheFirstWindow() {
+        ServerQueue queue = new ServerQueue();
+        Map<UUID, Player> players = new HashMap<>();
+
+        for (int i = 0; i < 100; i++) {
+            UUID playerId = UUID.randomUUID();
+            players.put(playerId, mockPlayer(playerId));
+            queue.enqueue(playerId, QueueTier.NORMAL);
+        }
+
+        UUID allowed = UUID.randomUUID();
+        players.put(allowed, mockPlayer(allowed));
+        queue.enqueue(allowed, QueueTier.NORMAL);
+
+        Player matched = queue.findFirstMaintenanceEligible(players::get, id -> {
+        }, player -> player.getUniqueId().equals(allowed));
+
+        assertEquals(allowed, matched.getUniqueId());
+        assertNull(queue.findFirstMaintenanceEligible(players::get, id -> {
+        }, player -> false));
+        assertEquals(101, queue.size());
+    }
+
+    private static Player mockPlayer(UUID playerId) {
+        Player player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(playerId);
+        return player;
+    }
 }
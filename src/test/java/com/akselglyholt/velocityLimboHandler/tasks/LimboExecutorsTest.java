@@ -0,0 +1,85 @@
+package com.akselglyholt.velocityLimboHandler.tasks;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimboExecutorsTest {
+    private LimboExecutors executors;
+
+    @BeforeEach
+    void setUp() {
+        executors = new LimboExecutors(1, 1, 1, 1, Logger.getLogger("LimboExecutorsTest"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void repeat_skipsTicksWhileThePreviousRunIsStillGoing() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        LimboExecutors.RepeatingTask task = executors.repeat(LimboExecutors.Pool.QUEUE, () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        assertEquals(1, runs.get());
+        assertEquals(0, stats(LimboExecutors.Pool.QUEUE).queuedTasks());
+        assertTrue(stats(LimboExecutors.Pool.QUEUE).skippedTicks() > 0);
+
+        task.cancel();
+        release.countDown();
+    }
+
+    @Test
+    void execute_runsOnTheSubmittingThreadOnceThePoolQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // One task occupies the only thread, the rest fill the queue
+        for (int i = 0; i <= 256; i++) {
+            executors.execute(LimboExecutors.Pool.NOTIFY, blocked);
+        }
+
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        executors.execute(LimboExecutors.Pool.NOTIFY, () -> ranOn.set(Thread.currentThread()));
+
+        assertSame(Thread.currentThread(), ranOn.get());
+        assertEquals(1, stats(LimboExecutors.Pool.NOTIFY).callerRuns());
+
+        release.countDown();
+    }
+
+    private LimboExecutors.PoolStats stats(LimboExecutors.Pool pool) {
+        return executors.getStats().stream().filter(stats -> stats.pool() == pool).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,99 @@
+package com.akselglyholt.velocityLimboHandler.tasks;
+
+import com.akselglyholt.velocityLimboHandler.auth.AuthManager;
+import com.akselglyholt.velocityLimboHandler.config.ConfigManager;
+import com.akselglyholt.velocityLimboHandler.managers.ReconnectHandler;
+import com.akselglyholt.velocityLimboHandler.managers.ServerHealthMonitor;
+import com.akselglyholt.velocityLimboHandler.misc.Utility;
+import com.akselglyholt.velocityLimboHandler.storage.PlayerManager;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReconnectionTaskTest {
+    private MockedStatic<Utility> mockedUtility;
+    private PlayerManager playerManager;
+    private ReconnectHandler reconnectHandler;
+    private ServerHealthMonitor healthMonitor;
+    private RegisteredServer server;
+    private Player first;
+    private Player second;
+    private ReconnectionTask task;
+
+    @BeforeEach
+    void setUp() {
+        mockedUtility = mockStatic(Utility.class);
+
+        ProxyServer proxyServer = mock(ProxyServer.class);
+        RegisteredServer limboServer = mock(RegisteredServer.class);
+        playerManager = mock(PlayerManager.class);
+        ConfigManager configManager = mock(ConfigManager.class);
+        reconnectHandler = mock(ReconnectHandler.class);
+        healthMonitor = mock(ServerHealthMonitor.class);
+
+        server = mock(RegisteredServer.class);
+        ServerInfo info = mock(ServerInfo.class);
+        when(server.getServerInfo()).thenReturn(info);
+        when(info.getName()).thenReturn("survival");
+
+        first = mock(Player.class);
+        second = mock(Player.class);
+        when(limboServer.getPlayersConnected()).thenReturn(List.of(first, second));
+        when(proxyServer.getAllServers()).thenReturn(List.of(server));
+        when(configManager.isQueueEnabled()).thenReturn(true);
+        when(reconnectHandler.getAdmissionWindow(server)).thenReturn(2);
+        when(playerManager.getNextQueuedPlayers(server, 2)).thenReturn(List.of(first, second));
+
+        // The monitor hasn't confirmed the recovery yet and still has the slots of the full server
+        when(healthMonitor.isUnavailable(server)).thenReturn(true);
+        when(healthMonitor.getFreeSlots(server)).thenReturn(0);
+
+        task = new ReconnectionTask(proxyServer, limboServer, playerManager, mock(AuthManager.class), configManager,
+                reconnectHandler, healthMonitor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedUtility.close();
+    }
+
+    @Test
+    void run_leavesUnavailableServersAlone() {
+        task.run();
+
+        verify(playerManager, never()).getNextQueuedPlayers(any(), anyInt());
+        verify(reconnectHandler, never()).reconnectPlayer(any());
+    }
+
+    @Test
+    void wakeUp_drainsTheAdmissionWindowBeforeTheRecoveryIsConfirmed() {
+        task.wakeUp(server);
+
+        verify(reconnectHandler).reconnectPlayer(first);
+        verify(reconnectHandler).reconnectPlayer(second);
+    }
+
+    @Test
+    void wakeUp_respectsTheBackoff() {
+        when(reconnectHandler.isBackingOff(server)).thenReturn(true);
+
+        task.wakeUp(server);
+
+        verify(reconnectHandler, never()).reconnectPlayer(any());
+    }
+}